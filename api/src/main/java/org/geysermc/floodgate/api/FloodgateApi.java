@@ -27,6 +27,7 @@ package org.geysermc.floodgate.api;
 
 import java.util.Collection;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.geysermc.cumulus.Form;
 import org.geysermc.cumulus.util.FormBuilder;
 import org.geysermc.floodgate.api.link.PlayerLink;
@@ -45,6 +46,17 @@ public interface FloodgateApi {
      */
     Collection<FloodgatePlayer> getPlayers();
 
+    /**
+     * Calls the given consumer for every online Floodgate player. Unlike {@link #getPlayers()}
+     * implementations are encouraged to not allocate anything while doing so, which makes this
+     * method suitable for code that runs often (e.g. every tick).
+     *
+     * @param consumer the consumer to call for every online Floodgate player
+     */
+    default void forEachPlayer(Consumer<? super FloodgatePlayer> consumer) {
+        getPlayers().forEach(consumer);
+    }
+
     /**
      * Returns the number of Floodgate players who are currently online.
      */
@@ -84,10 +96,31 @@ public interface FloodgateApi {
      */
     boolean isFloodgateId(UUID uuid);
 
+    /**
+     * Sends a form to an online Floodgate player. The form is sent on another thread, if it
+     * couldn't be sent the response handler of the form is called like the form has been closed.
+     *
+     * @param uuid the uuid of the player to send the form to
+     * @param form the form to send
+     * @return true if the player is an online Floodgate player, false otherwise
+     */
     boolean sendForm(UUID uuid, Form form);
 
     boolean sendForm(UUID uuid, FormBuilder<?, ?> formBuilder);
 
+    /**
+     * Sends a form to an online Floodgate player, like {@link #sendForm(UUID, Form)}. A form with
+     * the same replace key that is still waiting to be sent to the player is replaced by this
+     * form, and is handled like it has been closed. This is useful for forms that are updated
+     * often, like live-updating menus.
+     *
+     * @param uuid       the uuid of the player to send the form to
+     * @param form       the form to send
+     * @param replaceKey the key of the forms this form supersedes, or null to not replace forms
+     * @return true if the player is an online Floodgate player, false otherwise
+     */
+    boolean sendForm(UUID uuid, Form form, String replaceKey);
+
     /**
      * Returns the instance that manages all the linking.
      */
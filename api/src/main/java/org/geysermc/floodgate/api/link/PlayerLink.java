@@ -25,6 +25,9 @@
 
 package org.geysermc.floodgate.api.link;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -62,6 +65,60 @@ public interface PlayerLink {
     @NonNull
     CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId);
 
+    /**
+     * Get the linked players of multiple Bedrock players at once. Implementations should override
+     * this method to look up all the players in a single query, by default it falls back to {@link
+     * #getLinkedPlayer(UUID)} for every player.
+     *
+     * @param bedrockIds the uuids of the Bedrock players
+     * @return a completable future with the {@link LinkedPlayer} of every Bedrock player that is
+     * linked, keyed by their Bedrock uuid. Bedrock players that aren't linked are not included
+     */
+    @NonNull
+    default CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        Map<UUID, CompletableFuture<LinkedPlayer>> lookups = new HashMap<>();
+        for (UUID bedrockId : bedrockIds) {
+            lookups.put(bedrockId, getLinkedPlayer(bedrockId));
+        }
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<UUID, LinkedPlayer> linkedPlayers = new HashMap<>();
+                    lookups.forEach((bedrockId, lookup) -> {
+                        LinkedPlayer linkedPlayer = lookup.join();
+                        if (linkedPlayer != null) {
+                            linkedPlayers.put(bedrockId, linkedPlayer);
+                        }
+                    });
+                    return linkedPlayers;
+                });
+    }
+
+    /**
+     * Tells for multiple players at once if they're linked. Implementations should override this
+     * method to look up all the players in a single query, by default it falls back to {@link
+     * #isLinkedPlayer(UUID)} for every player.
+     *
+     * @param playerIds the uuids of the players to check, can be both Java and Bedrock uuids
+     * @return a completable future with for every given player if the player is linked
+     */
+    @NonNull
+    default CompletableFuture<Map<UUID, Boolean>> isLinkedPlayers(
+            @NonNull Collection<UUID> playerIds) {
+        Map<UUID, CompletableFuture<Boolean>> lookups = new HashMap<>();
+        for (UUID playerId : playerIds) {
+            lookups.put(playerId, isLinkedPlayer(playerId));
+        }
+
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    Map<UUID, Boolean> linked = new HashMap<>();
+                    lookups.forEach((playerId, lookup) -> linked.put(playerId, lookup.join()));
+                    return linked;
+                });
+    }
+
     /**
      * Links a Java account to a Bedrock account.
      *
@@ -114,6 +114,15 @@ public interface FloodgatePlayer {
         return sendForm(formBuilder.build());
     }
 
+    /**
+     * Sends a form to this player that replaces the queued form with the same replace key.
+     *
+     * @see FloodgateApi#sendForm(UUID, Form, String)
+     */
+    default boolean sendForm(Form form, String replaceKey) {
+        return FloodgateApi.getInstance().sendForm(getCorrectUniqueId(), form, replaceKey);
+    }
+
     boolean hasProperty(PropertyKey key);
 
     boolean hasProperty(String key);
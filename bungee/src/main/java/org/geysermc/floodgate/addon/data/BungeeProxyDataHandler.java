@@ -28,12 +28,10 @@ package org.geysermc.floodgate.addon.data;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 import java.net.InetSocketAddress;
-import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.connection.InitialHandler;
 import net.md_5.bungee.netty.ChannelWrapper;
 import net.md_5.bungee.netty.HandlerBoss;
@@ -49,48 +47,63 @@ import org.geysermc.floodgate.util.Constants;
 import org.geysermc.floodgate.util.ReflectionUtils;
 
 @SuppressWarnings("ConstantConditions")
-@RequiredArgsConstructor
-public class BungeeProxyDataHandler extends ChannelInboundHandlerAdapter {
-    private static final Field HANDLER;
-    private static final Field CHANNEL_WRAPPER;
+public class BungeeProxyDataHandler extends CommonDataHandler {
+    private static final MethodHandle GET_HANDLER;
+    private static final MethodHandle GET_CHANNEL_WRAPPER;
 
     static {
-        HANDLER = ReflectionUtils.getField(HandlerBoss.class, "handler");
-        checkNotNull(HANDLER, "handler field cannot be null");
+        GET_HANDLER = ReflectionUtils.getGetter(
+                ReflectionUtils.getField(HandlerBoss.class, "handler"));
+        checkNotNull(GET_HANDLER, "handler field cannot be null");
 
-        CHANNEL_WRAPPER =
-                ReflectionUtils.getFieldOfType(InitialHandler.class, ChannelWrapper.class);
-        checkNotNull(CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
+        GET_CHANNEL_WRAPPER = ReflectionUtils.getGetter(
+                ReflectionUtils.getFieldOfType(InitialHandler.class, ChannelWrapper.class));
+        checkNotNull(GET_CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
     }
 
     private final ProxyFloodgateConfig config;
-    private final FloodgateHandshakeHandler handler;
     private final AttributeKey<String> kickMessageAttribute;
     private boolean done;
 
+    public BungeeProxyDataHandler(
+            ProxyFloodgateConfig config,
+            FloodgateHandshakeHandler handshakeHandler,
+            AttributeKey<String> kickMessageAttribute) {
+        super(handshakeHandler);
+        this.config = config;
+        this.kickMessageAttribute = kickMessageAttribute;
+    }
+
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
         ReferenceCountUtil.retain(msg);
         if (done || !(msg instanceof PacketWrapper)) {
             ctx.fireChannelRead(msg);
             return;
         }
+        done = true;
 
         DefinedPacket packet = ((PacketWrapper) msg).packet;
 
         // we're only interested in the Handshake packet
         if (packet instanceof Handshake) {
-            handleHandshake(ctx, (Handshake) packet);
-            done = true;
+            handleHandshake(ctx, msg, ((Handshake) packet).getHost());
+            return;
         }
 
+        // the first packet isn't a Handshake (e.g. a legacy ping), there is nothing left for us
         ctx.fireChannelRead(msg);
+        removeSelf(ctx);
     }
 
-    private void handleHandshake(ChannelHandlerContext ctx, Handshake packet) {
-        String data = packet.getHost();
+    @Override
+    protected void handleResult(ChannelHandlerContext ctx, Object msg, HandshakeResult result) {
+        applyHandshakeResult(ctx, result);
+        ctx.fireChannelRead(msg);
+        removeSelf(ctx);
+    }
 
-        HandshakeResult result = handler.handle(ctx.channel(), data);
+    private void applyHandshakeResult(ChannelHandlerContext ctx, HandshakeResult result) {
         HandshakeData handshakeData = result.getHandshakeData();
 
         // we'll change the IP address from the proxy to the IP of the Bedrock client very early on
@@ -99,10 +112,10 @@ public class BungeeProxyDataHandler extends ChannelInboundHandlerAdapter {
 
             HandlerBoss handlerBoss = ctx.pipeline().get(HandlerBoss.class);
             // InitialHandler extends PacketHandler and implements PendingConnection
-            InitialHandler connection = ReflectionUtils.getCastedValue(handlerBoss, HANDLER);
+            InitialHandler connection = ReflectionUtils.getCastedValue(handlerBoss, GET_HANDLER);
 
             ChannelWrapper channelWrapper =
-                    ReflectionUtils.getCastedValue(connection, CHANNEL_WRAPPER);
+                    ReflectionUtils.getCastedValue(connection, GET_CHANNEL_WRAPPER);
 
             InetSocketAddress address =
                     result.getFloodgatePlayer().getProperty(PropertyKey.SOCKET_ADDRESS);
@@ -31,7 +31,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.ServerConnector;
@@ -42,60 +42,56 @@ import net.md_5.bungee.protocol.packet.Handshake;
 import org.geysermc.floodgate.api.ProxyFloodgateApi;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
 import org.geysermc.floodgate.config.ProxyFloodgateConfig;
-import org.geysermc.floodgate.player.FloodgatePlayerImpl;
-import org.geysermc.floodgate.util.BedrockData;
 import org.geysermc.floodgate.util.ReflectionUtils;
 
 @SuppressWarnings("ConstantConditions")
 @RequiredArgsConstructor
 public class BungeeServerDataHandler extends MessageToMessageEncoder<Object> {
-    private static final Field HANDLER;
-    private static final Field USER_CONNECTION;
-    private static final Field CHANNEL_WRAPPER;
+    private static final MethodHandle GET_HANDLER;
+    private static final MethodHandle GET_USER_CONNECTION;
+    private static final MethodHandle GET_CHANNEL_WRAPPER;
 
     static {
-        HANDLER = ReflectionUtils.getField(HandlerBoss.class, "handler");
-        checkNotNull(HANDLER, "handler field cannot be null");
+        GET_HANDLER = ReflectionUtils.getGetter(
+                ReflectionUtils.getField(HandlerBoss.class, "handler"));
+        checkNotNull(GET_HANDLER, "handler field cannot be null");
 
-        USER_CONNECTION = ReflectionUtils.getField(ServerConnector.class, "user");
-        checkNotNull(USER_CONNECTION, "user field cannot be null");
+        GET_USER_CONNECTION = ReflectionUtils.getGetter(
+                ReflectionUtils.getField(ServerConnector.class, "user"));
+        checkNotNull(GET_USER_CONNECTION, "user field cannot be null");
 
-        CHANNEL_WRAPPER =
-                ReflectionUtils.getFieldOfType(UserConnection.class, ChannelWrapper.class);
-        checkNotNull(CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
+        GET_CHANNEL_WRAPPER = ReflectionUtils.getGetter(
+                ReflectionUtils.getFieldOfType(UserConnection.class, ChannelWrapper.class));
+        checkNotNull(GET_CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
     }
 
     private final ProxyFloodgateConfig config;
     private final ProxyFloodgateApi api;
     private final AttributeKey<FloodgatePlayer> playerAttribute;
-    private boolean done;
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object packet, List<Object> out) {
         ReferenceCountUtil.retain(packet);
-        if (done) {
-            out.add(packet);
-            return;
-        }
+        out.add(packet);
+        // we're only interested in the first packet, so we don't have to stay in the pipeline
+        ctx.pipeline().remove(this);
 
         // passes the information through to the connecting server if enabled
         if (!(packet instanceof Handshake) || !config.isSendFloodgateData()) {
-            done = true;
-            out.add(packet);
             return;
         }
 
         // get the Proxy <-> Player channel from the Proxy <-> Server channel
         HandlerBoss handlerBoss = ctx.pipeline().get(HandlerBoss.class);
-        ServerConnector connector = ReflectionUtils.getCastedValue(handlerBoss, HANDLER);
-        UserConnection connection = ReflectionUtils.getCastedValue(connector, USER_CONNECTION);
-        ChannelWrapper wrapper = ReflectionUtils.getCastedValue(connection, CHANNEL_WRAPPER);
+        ServerConnector connector = ReflectionUtils.getCastedValue(handlerBoss, GET_HANDLER);
+        UserConnection connection = ReflectionUtils.getCastedValue(connector, GET_USER_CONNECTION);
+        ChannelWrapper wrapper = ReflectionUtils.getCastedValue(connection, GET_CHANNEL_WRAPPER);
 
         FloodgatePlayer player = wrapper.getHandle().attr(playerAttribute).get();
 
         if (player != null) {
-            BedrockData data = player.as(FloodgatePlayerImpl.class).toBedrockData();
-            String encryptedData = api.createEncryptedDataString(data);
+            String encryptedData =
+                    api.getEncryptedDataString(player, ctx.channel().remoteAddress());
 
             Handshake handshake = (Handshake) packet;
             String address = handshake.getHost();
@@ -108,8 +104,5 @@ public class BungeeServerDataHandler extends MessageToMessageEncoder<Object> {
             handshake.setHost(originalAddress + '\0' + encryptedData + remaining);
             // Bungeecord will add his data after our data
         }
-
-        done = true;
-        out.add(packet);
     }
 }
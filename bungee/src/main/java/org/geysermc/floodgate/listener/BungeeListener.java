@@ -31,7 +31,7 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 import java.util.UUID;
 import net.md_5.bungee.api.connection.PendingConnection;
 import net.md_5.bungee.api.event.LoginEvent;
@@ -52,16 +52,17 @@ import org.geysermc.floodgate.util.ReflectionUtils;
 
 @SuppressWarnings("ConstantConditions")
 public final class BungeeListener implements Listener {
-    private static final Field CHANNEL_WRAPPER;
-    private static final Field PLAYER_NAME;
+    private static final MethodHandle GET_CHANNEL_WRAPPER;
+    private static final MethodHandle SET_PLAYER_NAME;
 
     static {
-        CHANNEL_WRAPPER =
-                ReflectionUtils.getFieldOfType(InitialHandler.class, ChannelWrapper.class);
-        checkNotNull(CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
+        GET_CHANNEL_WRAPPER = ReflectionUtils.getGetter(
+                ReflectionUtils.getFieldOfType(InitialHandler.class, ChannelWrapper.class));
+        checkNotNull(GET_CHANNEL_WRAPPER, "ChannelWrapper field cannot be null");
 
-        PLAYER_NAME = ReflectionUtils.getField(InitialHandler.class, "name");
-        checkNotNull(PLAYER_NAME, "Initial name field cannot be null");
+        SET_PLAYER_NAME = ReflectionUtils.getSetter(
+                ReflectionUtils.getField(InitialHandler.class, "name"));
+        checkNotNull(SET_PLAYER_NAME, "Initial name field cannot be null");
     }
 
     @Inject private ProxyFloodgateApi api;
@@ -85,7 +86,7 @@ public final class BungeeListener implements Listener {
 
         PendingConnection connection = event.getConnection();
 
-        ChannelWrapper wrapper = ReflectionUtils.getCastedValue(connection, CHANNEL_WRAPPER);
+        ChannelWrapper wrapper = ReflectionUtils.getCastedValue(connection, GET_CHANNEL_WRAPPER);
         Channel channel = wrapper.getHandle();
 
         // check if the player has to be kicked
@@ -100,7 +101,7 @@ public final class BungeeListener implements Listener {
         if (player != null) {
             connection.setOnlineMode(false);
             connection.setUniqueId(player.getCorrectUniqueId());
-            ReflectionUtils.setValue(connection, PLAYER_NAME, player.getCorrectUsername());
+            ReflectionUtils.setValue(connection, SET_PLAYER_NAME, player.getCorrectUsername());
         }
     }
 
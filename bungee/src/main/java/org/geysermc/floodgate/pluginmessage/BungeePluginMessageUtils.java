@@ -25,6 +25,7 @@
 
 package org.geysermc.floodgate.pluginmessage;
 
+import io.netty.buffer.Unpooled;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.ServerConnection;
@@ -82,8 +83,11 @@ public final class BungeePluginMessageUtils extends PluginMessageUtils implement
             sourceIdentity = Identity.SERVER;
         }
 
-        Result result = channel.handleProxyCall(event.getData(), targetUuid, targetUsername,
-                targetIdentity, sourceUuid, sourceUsername, sourceIdentity);
+        PluginMessageContext context = new PluginMessageContext(
+                targetIdentity, targetUuid, targetUsername,
+                sourceIdentity, sourceUuid, sourceUsername);
+
+        Result result = channel.handleProxyCall(Unpooled.wrappedBuffer(event.getData()), context);
 
         event.setCancelled(result.isAllowed());
 
@@ -45,6 +45,8 @@ import org.geysermc.floodgate.config.loader.ConfigLoader;
 import org.geysermc.floodgate.link.PlayerLinkLoader;
 import org.geysermc.floodgate.module.ConfigLoadedModule;
 import org.geysermc.floodgate.module.PostInitializeModule;
+import org.geysermc.floodgate.util.FloodgateExecutors;
+import org.geysermc.floodgate.util.HttpUtils;
 import org.geysermc.floodgate.util.PrefixCheckTask;
 
 public class FloodgatePlatform {
@@ -92,6 +94,7 @@ public class FloodgatePlatform {
         }
 
         configHolder.set(config);
+        HttpUtils.setMaxConcurrentRequests(config.getGlobalApiThreads());
         guice = guice.createChildInjector(new ConfigLoadedModule(config));
         PlayerLink link = guice.getInstance(PlayerLinkLoader.class).load();
 
@@ -116,7 +119,8 @@ public class FloodgatePlatform {
 
         this.guice = guice.createChildInjector(new PostInitializeModule(postInitializeModules));
 
-        PrefixCheckTask.checkAndExecuteDelayed(config, logger);
+        PrefixCheckTask.checkAndExecuteDelayed(
+                config, logger, guice.getInstance(FloodgateExecutors.class).getScheduler());
 
         return true;
     }
@@ -133,6 +137,7 @@ public class FloodgatePlatform {
         }
 
         api.getPlayerLink().stop();
+        guice.getInstance(FloodgateExecutors.class).shutdown();
         return true;
     }
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.addon.data;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import lombok.RequiredArgsConstructor;
+import org.geysermc.floodgate.player.FloodgateHandshakeHandler;
+import org.geysermc.floodgate.player.FloodgateHandshakeHandler.HandshakeResult;
+
+/**
+ * The base class of the handlers that handle the handshake packet of a connecting client.<br>
+ * Handling the handshake can complete asynchronously (e.g. while the player link is fetched), so
+ * this class stops reading from the channel and queues every packet that was already received
+ * until the handshake has been handled. The queued packets are replayed on the event loop of the
+ * channel afterwards.<br>
+ * Implementations should call {@link #removeSelf(ChannelHandlerContext)} once they're done, so
+ * that the handler doesn't stay in the pipeline for the rest of the connection.
+ */
+@RequiredArgsConstructor
+public abstract class CommonDataHandler extends ChannelInboundHandlerAdapter {
+    protected final FloodgateHandshakeHandler handshakeHandler;
+
+    private final Queue<Object> packetQueue = new ArrayDeque<>();
+    private boolean waitingOnHandshake;
+    private boolean removeRequested;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (waitingOnHandshake) {
+            packetQueue.add(msg);
+            return;
+        }
+        channelRead0(ctx, msg);
+    }
+
+    /**
+     * Called for every packet that isn't received while we're waiting on the handshake result.
+     *
+     * @param ctx    the context of this handler
+     * @param packet the received packet
+     */
+    protected abstract void channelRead0(ChannelHandlerContext ctx, Object packet)
+            throws Exception;
+
+    /**
+     * Called once the handshake has been handled. Implementations are responsible for forwarding
+     * (or dropping) the handshake packet.
+     *
+     * @param ctx    the context of this handler
+     * @param packet the handshake packet
+     * @param result the result of handling the handshake
+     */
+    protected abstract void handleResult(
+            ChannelHandlerContext ctx,
+            Object packet,
+            HandshakeResult result) throws Exception;
+
+    /**
+     * Handles the given hostname and calls {@link #handleResult(ChannelHandlerContext, Object,
+     * HandshakeResult)} once it has been handled. Reading is paused if the result isn't available
+     * directly.
+     *
+     * @param ctx      the context of this handler
+     * @param packet   the handshake packet
+     * @param hostname the hostname of the handshake packet
+     */
+    protected void handleHandshake(ChannelHandlerContext ctx, Object packet, String hostname)
+            throws Exception {
+
+        CompletableFuture<HandshakeResult> future =
+                handshakeHandler.handle(ctx.channel(), hostname);
+
+        // no need to pause anything when we already have the result
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            handleResult(ctx, packet, future.join());
+            return;
+        }
+
+        waitingOnHandshake = true;
+        ctx.channel().config().setAutoRead(false);
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                ReferenceCountUtil.release(packet);
+                releaseQueue();
+                ctx.fireExceptionCaught(throwable);
+                ctx.close();
+                return;
+            }
+
+            try {
+                handleResult(ctx, packet, result);
+            } catch (Exception exception) {
+                ctx.fireExceptionCaught(exception);
+            }
+            resumeReading(ctx);
+        });
+    }
+
+    private void resumeReading(ChannelHandlerContext ctx) {
+        waitingOnHandshake = false;
+
+        Object packet;
+        // one of the queued packets could've started handling a handshake again
+        while (!waitingOnHandshake && (packet = packetQueue.poll()) != null) {
+            try {
+                channelRead(ctx, packet);
+            } catch (Exception exception) {
+                ctx.fireExceptionCaught(exception);
+            }
+        }
+
+        if (!waitingOnHandshake) {
+            if (removeRequested) {
+                removeSelf(ctx);
+            }
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * Removes this handler from the pipeline. The removal is delayed until every queued packet has
+     * been handled when we're still waiting on the handshake result or replaying queued packets.
+     *
+     * @param ctx the context of this handler
+     */
+    protected void removeSelf(ChannelHandlerContext ctx) {
+        if (waitingOnHandshake || !packetQueue.isEmpty()) {
+            removeRequested = true;
+            return;
+        }
+        if (!ctx.isRemoved()) {
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    private void releaseQueue() {
+        Object packet;
+        while ((packet = packetQueue.poll()) != null) {
+            ReferenceCountUtil.release(packet);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        releaseQueue();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        releaseQueue();
+        super.handlerRemoved(ctx);
+    }
+}
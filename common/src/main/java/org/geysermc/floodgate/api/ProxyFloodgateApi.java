@@ -25,8 +25,11 @@
 
 package org.geysermc.floodgate.api;
 
+import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
 import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.geysermc.floodgate.player.FloodgatePlayerImpl;
 import org.geysermc.floodgate.pluginmessage.PluginMessageManager;
 import org.geysermc.floodgate.util.BedrockData;
 
@@ -50,4 +53,17 @@ public final class ProxyFloodgateApi extends SimpleFloodgateApi {
     public String createEncryptedDataString(BedrockData bedrockData) {
         return new String(createEncryptedData(bedrockData), StandardCharsets.UTF_8);
     }
+
+    /**
+     * Returns the encrypted data of the given player for a connection to the given server. The
+     * encrypted data is reused between server switches when possible.
+     *
+     * @param player the player that is connecting to the server
+     * @param server the address of the server
+     * @return the encrypted data of the player
+     */
+    public String getEncryptedDataString(FloodgatePlayer player, SocketAddress server) {
+        FloodgatePlayerImpl playerImpl = player.as(FloodgatePlayerImpl.class);
+        return playerImpl.getEncryptedDataCache().get(playerImpl, server, this);
+    }
 }
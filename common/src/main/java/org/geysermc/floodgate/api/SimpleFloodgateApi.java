@@ -25,29 +25,33 @@
 
 package org.geysermc.floodgate.api;
 
-import com.google.common.collect.ImmutableSet;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import org.geysermc.cumulus.Form;
 import org.geysermc.cumulus.util.FormBuilder;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
 import org.geysermc.floodgate.player.FloodgatePlayerImpl;
+import org.geysermc.floodgate.player.FloodgatePlayerRegistry;
 import org.geysermc.floodgate.pluginmessage.PluginMessageManager;
 import org.geysermc.floodgate.pluginmessage.channel.FormChannel;
 import org.geysermc.floodgate.util.Utils;
 
 @RequiredArgsConstructor
 public class SimpleFloodgateApi implements FloodgateApi {
-    private final Map<UUID, FloodgatePlayer> players = new HashMap<>();
+    private final FloodgatePlayerRegistry players = new FloodgatePlayerRegistry();
     private final PluginMessageManager pluginMessageManager;
 
     @Override
     public Collection<FloodgatePlayer> getPlayers() {
-        return ImmutableSet.copyOf(players.values());
+        return players.snapshot();
+    }
+
+    @Override
+    public void forEachPlayer(Consumer<? super FloodgatePlayer> consumer) {
+        players.forEach(consumer);
     }
 
     @Override
@@ -62,7 +66,7 @@ public class SimpleFloodgateApi implements FloodgateApi {
 
     @Override
     public FloodgatePlayer getPlayer(UUID uuid) {
-        FloodgatePlayer selfPlayer = players.get(uuid);
+        FloodgatePlayer selfPlayer = players.getByJavaUniqueId(uuid);
         // bedrock players are always stored by their xuid,
         // so we return the instance if we know that the given uuid is a Floodgate uuid
         if (selfPlayer != null || isFloodgateId(uuid)) {
@@ -70,12 +74,29 @@ public class SimpleFloodgateApi implements FloodgateApi {
         }
 
         // make it possible to find player by Java id (linked players)
-        for (FloodgatePlayer player : players.values()) {
-            if (player.getCorrectUniqueId().equals(uuid)) {
-                return player;
-            }
-        }
-        return null;
+        return players.getByLinkedUniqueId(uuid);
+    }
+
+    /**
+     * Get an online Floodgate player by their Bedrock username.
+     *
+     * @param username the Bedrock username, see {@link FloodgatePlayer#getUsername()}
+     * @return the FloodgatePlayer or null if there is no Bedrock player with that username online
+     */
+    @Nullable
+    public FloodgatePlayer getPlayerByUsername(String username) {
+        return players.getByUsername(username);
+    }
+
+    /**
+     * Get an online Floodgate player by the username they have on the server (case insensitive).
+     *
+     * @param username the username, see {@link FloodgatePlayer#getCorrectUsername()}
+     * @return the FloodgatePlayer or null if there is no Bedrock player with that username online
+     */
+    @Nullable
+    public FloodgatePlayer getPlayerByCorrectUsername(String username) {
+        return players.getByCorrectUsername(username);
     }
 
     @Override
@@ -90,7 +111,7 @@ public class SimpleFloodgateApi implements FloodgateApi {
 
     @Override
     public boolean sendForm(UUID uuid, Form form) {
-        return pluginMessageManager.getChannel(FormChannel.class).sendForm(uuid, form);
+        return sendForm(uuid, form, null);
     }
 
     @Override
@@ -98,8 +119,25 @@ public class SimpleFloodgateApi implements FloodgateApi {
         return sendForm(uuid, formBuilder.build());
     }
 
-    public FloodgatePlayer addPlayer(UUID uuid, FloodgatePlayer player) {
-        return players.put(uuid, player);
+    @Override
+    public boolean sendForm(UUID uuid, Form form, String replaceKey) {
+        // the form is sent on another thread, so we can only check if the player is online
+        if (getPlayer(uuid) == null) {
+            return false;
+        }
+        pluginMessageManager.getChannel(FormChannel.class).sendForm(uuid, form, replaceKey);
+        return true;
+    }
+
+    /**
+     * Adds a player (should only be used internally). The player is registered by their
+     * {@link FloodgatePlayer#getJavaUniqueId()}.
+     *
+     * @param player the player to add
+     * @return the player that was registered with the same uuid before, or null
+     */
+    public FloodgatePlayer addPlayer(FloodgatePlayer player) {
+        return players.add(player);
     }
 
     /**
@@ -111,7 +149,7 @@ public class SimpleFloodgateApi implements FloodgateApi {
      */
     @Nullable
     public FloodgatePlayer removePlayer(UUID onlineId, boolean removeLogin) {
-        FloodgatePlayer selfPlayer = players.get(onlineId);
+        FloodgatePlayer selfPlayer = players.getByJavaUniqueId(onlineId);
         // the player is a non-linked player or a linked player but somehow someone tried to
         // remove the player by his xuid, we have to find out
         if (selfPlayer != null) {
@@ -127,17 +165,13 @@ public class SimpleFloodgateApi implements FloodgateApi {
             }
 
             // passed the test
-            players.remove(onlineId);
-            // was the account linked?
-            return selfPlayer;
+            return removePlayer(selfPlayer) ? selfPlayer : null;
         }
 
         // we still want to be able to remove a linked-player by his linked java uuid
-        for (FloodgatePlayer player : players.values()) {
-            if (canRemove(player, removeLogin) && player.getCorrectUniqueId().equals(onlineId)) {
-                players.remove(player.getJavaUniqueId());
-                return player;
-            }
+        FloodgatePlayer player = players.getByLinkedUniqueId(onlineId);
+        if (player != null && canRemove(player, removeLogin) && removePlayer(player)) {
+            return player;
         }
         return null;
     }
@@ -159,6 +193,15 @@ public class SimpleFloodgateApi implements FloodgateApi {
      * instance directly.
      */
     public boolean removePlayer(FloodgatePlayer player) {
-        return players.remove(player.getJavaUniqueId(), player);
+        if (!players.remove(player)) {
+            return false;
+        }
+
+        // the forms of the player won't be answered anymore
+        FormChannel formChannel = pluginMessageManager.getChannel(FormChannel.class);
+        if (formChannel != null) {
+            formChannel.removePlayerForms(player.getCorrectUniqueId());
+        }
+        return true;
     }
 }
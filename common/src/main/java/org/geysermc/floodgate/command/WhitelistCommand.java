@@ -29,7 +29,6 @@ import cloud.commandframework.Command;
 import cloud.commandframework.CommandManager;
 import cloud.commandframework.Description;
 import cloud.commandframework.context.CommandContext;
-import com.google.gson.JsonObject;
 import com.google.inject.Inject;
 import net.kyori.adventure.text.Component;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
@@ -39,6 +38,7 @@ import org.geysermc.floodgate.platform.command.FloodgateCommand;
 import org.geysermc.floodgate.player.UserAudience;
 import org.geysermc.floodgate.player.UserAudienceArgument;
 import org.geysermc.floodgate.util.Constants;
+import org.geysermc.floodgate.util.GlobalApiResponse;
 import org.geysermc.floodgate.util.HttpUtils;
 
 public class WhitelistCommand implements FloodgateCommand {
@@ -82,7 +82,7 @@ public class WhitelistCommand implements FloodgateCommand {
 
         final String tempName = name;
 
-        HttpUtils.asyncGet(Constants.GET_XUID_URL + name)
+        HttpUtils.asyncGet(Constants.GET_XUID_URL + name, XuidResponse.class)
                 .whenComplete((result, error) -> {
                     if (error != null) {
                         sender.sendMessage(Component.text(
@@ -91,26 +91,24 @@ public class WhitelistCommand implements FloodgateCommand {
                         return;
                     }
 
-                    JsonObject response = result.getResponse();
-                    boolean success = response.get("success").getAsBoolean();
-
-                    if (!success) {
+                    XuidResponse response = result.getResponse();
+                    if (response == null || !response.isSuccess()) {
                         sender.sendMessage(Component.text(
                                 "An error occurred. See the console for more info"));
                         logger.error(
                                 "Got an error from requesting the xuid of a Bedrock player: {}",
-                                response.get("message").getAsString());
+                                response != null ? response.getMessage() : "empty response");
                         return;
                     }
 
-                    JsonObject data = response.getAsJsonObject("data");
-                    if (data.size() == 0) {
+                    XuidData data = response.getData();
+                    if (data == null || data.xuid == null) {
                         sender.sendMessage(Component.text(
                                 "Couldn't find the user '" + tempName + "'"));
                         return;
                     }
 
-                    String xuid = data.get("xuid").getAsString();
+                    String xuid = data.xuid;
                     CommandUtil commandUtil = context.get("CommandUtil");
 
                     try {
@@ -133,4 +131,11 @@ public class WhitelistCommand implements FloodgateCommand {
     public void execute(CommandContext<UserAudience> context) {
         // ignored, all the logic is in the other method
     }
+
+    private static final class XuidResponse extends GlobalApiResponse<XuidData> {
+    }
+
+    private static final class XuidData {
+        private String xuid;
+    }
 }
@@ -44,6 +44,10 @@ public class FloodgateConfig {
     private PlayerLinkConfig playerLink;
 
     private boolean debug;
+    private int maxBlockingThreads = 64;
+    private int globalApiThreads = 16;
+    private boolean mergeIdenticalForms = true;
+    private String replayGuardTarget;
     private int configVersion;
 
     private Key key;
@@ -71,5 +75,9 @@ public class FloodgateConfig {
         private boolean allowed = false;
         private long linkCodeTimeout = 0;
         private String type = "global";
+        private int cacheSize = 1000;
+        private long cacheTime = 300;
+        private long notLinkedCacheTime = 30;
+        private boolean denyOnLookupFailure = false;
     }
 }
@@ -27,19 +27,30 @@ package org.geysermc.floodgate.inject;
 
 import io.netty.channel.Channel;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.AccessLevel;
 import lombok.Getter;
 import org.geysermc.floodgate.api.inject.InjectorAddon;
 import org.geysermc.floodgate.api.inject.PlatformInjector;
 
 public abstract class CommonPlatformInjector implements PlatformInjector {
+    private static final InjectorAddon[] NO_ADDONS = new InjectorAddon[0];
+
+    /**
+     * Channels are added and removed from the event loops of the channels, so this has to be a
+     * concurrent set.
+     */
     @Getter(AccessLevel.PROTECTED)
-    private final Set<Channel> injectedClients = new HashSet<>();
+    private final Set<Channel> injectedClients = ConcurrentHashMap.newKeySet();
 
     private final Map<Class<?>, InjectorAddon> addons = new HashMap<>();
+    /**
+     * A snapshot of the addons that is used while calling the addons. Addons are rarely added or
+     * removed, while the addons are called for every connection that opens or closes.
+     */
+    private volatile InjectorAddon[] addonArray = NO_ADDONS;
 
     protected boolean addInjectedClient(Channel channel) {
         return injectedClients.add(channel);
@@ -50,14 +61,22 @@ public abstract class CommonPlatformInjector implements PlatformInjector {
     }
 
     @Override
-    public boolean addAddon(InjectorAddon addon) {
-        return addons.putIfAbsent(addon.getClass(), addon) == null;
+    public synchronized boolean addAddon(InjectorAddon addon) {
+        if (addons.putIfAbsent(addon.getClass(), addon) != null) {
+            return false;
+        }
+        addonArray = addons.values().toArray(NO_ADDONS);
+        return true;
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public <T extends InjectorAddon> T removeAddon(Class<T> addon) {
-        return (T) addons.remove(addon);
+    public synchronized <T extends InjectorAddon> T removeAddon(Class<T> addon) {
+        T removed = (T) addons.remove(addon);
+        if (removed != null) {
+            addonArray = addons.values().toArray(NO_ADDONS);
+        }
+        return removed;
     }
 
     /**
@@ -69,7 +88,7 @@ public abstract class CommonPlatformInjector implements PlatformInjector {
      *                      connecting to the proxy or false when the platform isn't a proxy
      */
     public void injectAddonsCall(Channel channel, boolean proxyToServer) {
-        for (InjectorAddon addon : addons.values()) {
+        for (InjectorAddon addon : addonArray) {
             if (addon.shouldInject()) {
                 addon.onInject(channel, proxyToServer);
             }
@@ -83,7 +102,7 @@ public abstract class CommonPlatformInjector implements PlatformInjector {
      * @param channel the channel that was injected
      */
     public void loginSuccessCall(Channel channel) {
-        for (InjectorAddon addon : addons.values()) {
+        for (InjectorAddon addon : addonArray) {
             if (addon.shouldInject()) {
                 addon.onLoginDone(channel);
             }
@@ -97,7 +116,7 @@ public abstract class CommonPlatformInjector implements PlatformInjector {
      * @param channel the channel that was injected
      */
     public void channelClosedCall(Channel channel) {
-        for (InjectorAddon addon : addons.values()) {
+        for (InjectorAddon addon : addonArray) {
             if (addon.shouldInject()) {
                 addon.onChannelClosed(channel);
             }
@@ -111,7 +130,7 @@ public abstract class CommonPlatformInjector implements PlatformInjector {
      * @param channel the channel that was injected
      */
     public void removeAddonsCall(Channel channel) {
-        for (InjectorAddon addon : addons.values()) {
+        for (InjectorAddon addon : addonArray) {
             if (addon.shouldInject()) {
                 addon.onRemoveInject(channel);
             }
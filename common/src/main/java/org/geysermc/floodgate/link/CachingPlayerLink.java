@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.link;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.geysermc.floodgate.api.link.LinkRequestResult;
+import org.geysermc.floodgate.api.link.PlayerLink;
+import org.geysermc.floodgate.util.LinkedPlayer;
+import org.geysermc.floodgate.util.Utils;
+
+/**
+ * A read-through cache in front of another {@link PlayerLink} implementation. Lookups for the
+ * same player share the same pending request, players that aren't linked are cached for a
+ * shorter amount of time and changes made through this instance invalidate the cached lookups.
+ * Lookups that aren't cached and arrive within a few milliseconds of each other are sent to the
+ * underlying PlayerLink as a single batch.
+ */
+public final class CachingPlayerLink implements PlayerLink {
+    private final PlayerLink playerLink;
+    private final Cache<UUID, CachedLookup<LinkedPlayer>> linkedPlayers;
+    private final Cache<UUID, CachedLookup<Boolean>> linkedStatus;
+    private final long notLinkedCacheMillis;
+
+    private final Function<UUID, CompletableFuture<LinkedPlayer>> linkedPlayerLoader;
+    private final Function<UUID, CompletableFuture<Boolean>> linkedStatusLoader;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param playerLink         the PlayerLink implementation to cache the lookups of
+     * @param maximumSize        the maximum amount of lookups to cache per lookup type
+     * @param cacheTime          the time in seconds a lookup of a linked player stays valid
+     * @param notLinkedCacheTime the time in seconds a lookup of a player that isn't linked stays
+     *                           valid
+     * @param batchScheduler     the scheduler used to delay sending a batch of lookups
+     */
+    public CachingPlayerLink(
+            PlayerLink playerLink,
+            int maximumSize,
+            long cacheTime,
+            long notLinkedCacheTime,
+            ScheduledExecutorService batchScheduler) {
+        this.playerLink = playerLink;
+        this.linkedPlayers = createCache(maximumSize, cacheTime);
+        this.linkedStatus = createCache(maximumSize, cacheTime);
+        this.notLinkedCacheMillis = TimeUnit.SECONDS.toMillis(notLinkedCacheTime);
+
+        // batching only helps when the implementation can look up multiple players at once
+        if (hasBatchLookups(playerLink)) {
+            this.linkedPlayerLoader = new LookupBatcher<LinkedPlayer>(
+                    playerLink::getLinkedPlayers, null, batchScheduler)::lookup;
+            this.linkedStatusLoader = new LookupBatcher<Boolean>(
+                    playerLink::isLinkedPlayers, false, batchScheduler)::lookup;
+        } else {
+            this.linkedPlayerLoader = playerLink::getLinkedPlayer;
+            this.linkedStatusLoader = playerLink::isLinkedPlayer;
+        }
+    }
+
+    private static boolean hasBatchLookups(PlayerLink playerLink) {
+        try {
+            return !playerLink.getClass()
+                    .getMethod("getLinkedPlayers", Collection.class)
+                    .isDefault();
+        } catch (NoSuchMethodException exception) {
+            return false;
+        }
+    }
+
+    private static <T> Cache<UUID, CachedLookup<T>> createCache(int maximumSize, long cacheTime) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(cacheTime, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public void load() {
+        playerLink.load();
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
+        return lookup(linkedPlayers, bedrockId, linkedPlayerLoader,
+                linked -> linked == null);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
+        return lookup(linkedStatus, playerId, linkedStatusLoader,
+                linked -> !Boolean.TRUE.equals(linked));
+    }
+
+    private <T> CompletableFuture<T> lookup(
+            Cache<UUID, CachedLookup<T>> cache,
+            UUID key,
+            Function<UUID, CompletableFuture<T>> loader,
+            Predicate<T> notLinked) {
+
+        ConcurrentMap<UUID, CachedLookup<T>> map = cache.asMap();
+        while (true) {
+            CachedLookup<T> cached = map.get(key);
+            if (cached != null && !cached.isExpired()) {
+                hits.increment();
+                return cached.future;
+            }
+
+            CachedLookup<T> lookup = new CachedLookup<>(new CompletableFuture<>());
+            boolean installed = cached == null
+                    ? map.putIfAbsent(key, lookup) == null
+                    : map.replace(key, cached, lookup);
+
+            // another thread started a lookup in the meantime, share that one instead
+            if (!installed) {
+                continue;
+            }
+
+            misses.increment();
+
+            CompletableFuture<T> source;
+            try {
+                source = loader.apply(key);
+            } catch (Exception exception) {
+                source = Utils.failedFuture(exception);
+            }
+
+            source.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    // failures shouldn't be cached
+                    map.remove(key, lookup);
+                    lookup.future.completeExceptionally(throwable);
+                    return;
+                }
+
+                if (notLinked.test(result)) {
+                    lookup.expiresAt = System.currentTimeMillis() + notLinkedCacheMillis;
+                }
+                lookup.future.complete(result);
+            });
+            return lookup.future;
+        }
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Void> linkPlayer(
+            @NonNull UUID bedrockId,
+            @NonNull UUID javaId,
+            @NonNull String username) {
+        return playerLink.linkPlayer(bedrockId, javaId, username).whenComplete((ignored, error) -> {
+            if (error != null) {
+                invalidate(bedrockId);
+                invalidate(javaId);
+                return;
+            }
+
+            linkedPlayers.put(bedrockId, new CachedLookup<>(CompletableFuture.completedFuture(
+                    LinkedPlayer.of(username, javaId, bedrockId))));
+            CachedLookup<Boolean> linked =
+                    new CachedLookup<>(CompletableFuture.completedFuture(true));
+            linkedStatus.put(bedrockId, linked);
+            linkedStatus.put(javaId, linked);
+        });
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
+        return playerLink.unlinkPlayer(javaId).whenComplete((ignored, error) -> {
+            invalidate(javaId);
+
+            // linked players are cached by their Bedrock uuid
+            linkedPlayers.asMap().entrySet().removeIf(entry -> {
+                LinkedPlayer linkedPlayer = entry.getValue().getNow();
+                if (linkedPlayer != null && javaId.equals(linkedPlayer.getJavaUniqueId())) {
+                    linkedStatus.invalidate(entry.getKey());
+                    return true;
+                }
+                return false;
+            });
+        });
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<?> createLinkRequest(
+            @NonNull UUID javaId,
+            @NonNull String javaUsername,
+            @NonNull String bedrockUsername) {
+        return playerLink.createLinkRequest(javaId, javaUsername, bedrockUsername);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<LinkRequestResult> verifyLinkRequest(
+            @NonNull UUID bedrockId,
+            @NonNull String javaUsername,
+            @NonNull String bedrockUsername,
+            @NonNull String code) {
+        return playerLink.verifyLinkRequest(bedrockId, javaUsername, bedrockUsername, code)
+                .whenComplete((result, error) -> {
+                    if (result == LinkRequestResult.LINK_COMPLETED) {
+                        invalidate(bedrockId);
+                        // we only know the username of the Java player
+                        linkedStatus.invalidateAll();
+                    }
+                });
+    }
+
+    private void invalidate(UUID playerId) {
+        linkedPlayers.invalidate(playerId);
+        linkedStatus.invalidate(playerId);
+    }
+
+    /**
+     * Returns the amount of lookups that have been answered by the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of lookups that had to be forwarded to the underlying PlayerLink.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the connection pool metrics of the underlying PlayerLink, or null if it doesn't use
+     * a connection pool.
+     */
+    public ConnectionPoolMetrics getPoolMetrics() {
+        if (playerLink instanceof ConnectionPoolMetrics) {
+            return (ConnectionPoolMetrics) playerLink;
+        }
+        return null;
+    }
+
+    public PlayerLink getPlayerLink() {
+        return playerLink;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return playerLink.isEnabled();
+    }
+
+    @Override
+    public long getVerifyLinkTimeout() {
+        return playerLink.getVerifyLinkTimeout();
+    }
+
+    @Override
+    public boolean isAllowLinking() {
+        return playerLink.isAllowLinking();
+    }
+
+    @Override
+    public void stop() {
+        linkedPlayers.invalidateAll();
+        linkedStatus.invalidateAll();
+        playerLink.stop();
+    }
+
+    private static final class CachedLookup<T> {
+        private final CompletableFuture<T> future;
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private CachedLookup(CompletableFuture<T> future) {
+            this.future = future;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        private T getNow() {
+            return future.isDone() && !future.isCompletedExceptionally()
+                    ? future.getNow(null)
+                    : null;
+        }
+    }
+}
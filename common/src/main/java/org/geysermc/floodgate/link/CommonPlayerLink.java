@@ -30,7 +30,8 @@ import com.google.inject.Injector;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.AccessLevel;
 import lombok.Getter;
 import org.geysermc.floodgate.api.FloodgateApi;
@@ -40,10 +41,18 @@ import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.database.config.DatabaseConfig;
 import org.geysermc.floodgate.database.config.DatabaseConfigLoader;
+import org.geysermc.floodgate.util.FloodgateExecutors;
 
 public abstract class CommonPlayerLink implements PlayerLink {
+    /**
+     * The maximum amount of players to look up in a single query. SQLite only allows 999
+     * parameters per statement by default, and a lookup can use two parameters per player.
+     */
+    protected static final int MAX_LOOKUP_BATCH_SIZE = 400;
+
     @Getter(AccessLevel.PROTECTED)
-    private final ExecutorService executorService = Executors.newFixedThreadPool(11);
+    private ExecutorService executorService;
+    private ScheduledFuture<?> cleanupTask;
 
     @Getter private boolean enabled;
     @Getter private boolean allowLinking;
@@ -61,11 +70,36 @@ public abstract class CommonPlayerLink implements PlayerLink {
     private Injector injector;
 
     @Inject
-    private void init(FloodgateConfig config) {
+    private void init(FloodgateConfig config, FloodgateExecutors executors) {
+        executorService = executors.getBlockingExecutor();
+
         FloodgateConfig.PlayerLinkConfig linkConfig = config.getPlayerLink();
         enabled = linkConfig.isEnabled();
         allowLinking = linkConfig.isAllowed();
         verifyLinkTimeout = linkConfig.getLinkCodeTimeout();
+
+        if (enabled && allowLinking) {
+            long interval = Math.max(1, Math.min(verifyLinkTimeout, 60));
+            // cleaning up can block, so it shouldn't run on the scheduler thread itself
+            cleanupTask = executors.getScheduler().scheduleWithFixedDelay(
+                    () -> executorService.execute(this::runLinkRequestCleanup),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void runLinkRequestCleanup() {
+        try {
+            cleanLinkRequests();
+        } catch (Exception exception) {
+            logger.error("Error while removing expired link requests", exception);
+        }
+    }
+
+    /**
+     * Called periodically while linking is allowed. Implementations should remove the link
+     * requests that are expired according to {@link #getVerifyLinkTimeout()} here.
+     */
+    protected void cleanLinkRequests() {
     }
 
     public String createCode() {
@@ -76,6 +110,21 @@ public abstract class CommonPlayerLink implements PlayerLink {
         return request.isRequestedPlayer(api.getPlayer(bedrockId));
     }
 
+    /**
+     * Creates the given amount of comma separated query parameters, e.g. {@code ?, ?, ?} for 3.
+     * This can be used in an SQL {@code IN} clause to look up multiple players in one query.
+     */
+    protected static String createParameters(int count) {
+        StringBuilder parameters = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i != 0) {
+                parameters.append(", ");
+            }
+            parameters.append('?');
+        }
+        return parameters.toString();
+    }
+
     /**
      * Get the config present in init.json and turn it into the given config class. This method will
      * automatically copy and save the default config if the config doesn't exist.
@@ -93,6 +142,9 @@ public abstract class CommonPlayerLink implements PlayerLink {
 
     @Override
     public void stop() {
-        executorService.shutdown();
+        // the executors are shared, they're shut down by the platform
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.link;
+
+/**
+ * Implemented by {@link org.geysermc.floodgate.api.link.PlayerLink} implementations that use a
+ * connection pool, so that the pool can be monitored through {@link CachingPlayerLink}.
+ */
+public interface ConnectionPoolMetrics {
+    /**
+     * Returns the amount of connections that are currently borrowed from the pool, or -1 if the
+     * pool statistics aren't available.
+     */
+    long getActiveConnections();
+
+    /**
+     * Returns the amount of connections in the pool that are waiting to be used, or -1 if the
+     * pool statistics aren't available.
+     */
+    long getIdleConnections();
+
+    /**
+     * Returns the average time in milliseconds it took to get a connection from the pool.
+     */
+    double getAverageConnectionWaitTime();
+}
@@ -25,13 +25,12 @@
 
 package org.geysermc.floodgate.link;
 
-import com.google.gson.JsonObject;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.geysermc.floodgate.api.link.LinkRequestResult;
+import org.geysermc.floodgate.util.GlobalApiResponse;
 import org.geysermc.floodgate.util.HttpUtils;
-import org.geysermc.floodgate.util.HttpUtils.HttpResponse;
 import org.geysermc.floodgate.util.LinkedPlayer;
 import org.geysermc.floodgate.util.Utils;
 
@@ -45,58 +44,40 @@ public class GlobalPlayerLinking extends CommonPlayerLink {
     @Override
     @NonNull
     public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
-        return CompletableFuture.supplyAsync(
-                () -> {
-                    HttpResponse response =
-                            HttpUtils.get(GET_BEDROCK_LINK + bedrockId.getLeastSignificantBits());
-
-                    // both on code != 200 and fails with 200 'success' will be false
-                    if (!response.getResponse().get("success").getAsBoolean()) {
-                        getLogger().error(
-                                "Failed to request link for {}: {}",
-                                bedrockId.getLeastSignificantBits(),
-                                response.getResponse().get("message").getAsString());
-                        return null;
-                    }
-
-                    JsonObject data = response.getResponse().getAsJsonObject("data");
-
-                    // no link if data is empty
-                    if (data.size() == 0) {
-                        return null;
-                    }
-
-                    return LinkedPlayer.of(
-                            data.get("javaName").getAsString(),
-                            UUID.fromString(data.get("javaId").getAsString()),
-                            Utils.getJavaUuid(data.get("bedrockId").getAsLong()));
-                },
-                getExecutorService());
+        return requestLink(bedrockId).thenApply(data -> {
+            // no link if data is empty
+            if (data == null || data.javaId == null) {
+                return null;
+            }
+
+            return LinkedPlayer.of(
+                    data.javaName,
+                    UUID.fromString(data.javaId),
+                    Utils.getJavaUuid(data.bedrockId));
+        });
     }
 
     @Override
     @NonNull
     public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID bedrockId) {
-        return CompletableFuture.supplyAsync(
-                () -> {
-                    HttpResponse response =
-                            HttpUtils.get(GET_BEDROCK_LINK + bedrockId.getLeastSignificantBits());
-
-                    // both on http != 200 and fails with 200 success will be false
-                    if (!response.getResponse().get("success").getAsBoolean()) {
-                        getLogger().error(
-                                "Failed to request link for {}: {}",
-                                bedrockId.getLeastSignificantBits(),
-                                response.getResponse().get("message").getAsString());
-                        return false;
-                    }
-
-                    JsonObject data = response.getResponse().getAsJsonObject("data");
+        // no link if data is empty, otherwise the player is linked
+        return requestLink(bedrockId).thenApply(data -> data != null && data.javaId != null);
+    }
 
-                    // no link if data is empty, otherwise the player is linked
-                    return data.size() != 0;
-                },
-                getExecutorService());
+    private CompletableFuture<LinkData> requestLink(UUID bedrockId) {
+        long xuid = bedrockId.getLeastSignificantBits();
+        return HttpUtils.asyncGet(GET_BEDROCK_LINK + xuid, LinkResponse.class)
+                .thenApply(response -> {
+                    LinkResponse body = response.getResponse();
+                    // both on code != 200 and fails with 200 'success' will be false
+                    if (body == null || !body.isSuccess()) {
+                        throw new IllegalStateException(String.format(
+                                "Failed to request link for %s (%s): %s",
+                                xuid, response.getHttpCode(),
+                                body != null ? body.getMessage() : "empty response"));
+                    }
+                    return body.getData();
+                });
     }
 
     // player linking and unlinking now goes through the global player linking server.
@@ -140,4 +121,13 @@ public class GlobalPlayerLinking extends CommonPlayerLink {
         return Utils.failedFuture(new IllegalStateException(
                 "Cannot perform this action when Global Linking is enabled"));
     }
+
+    private static final class LinkResponse extends GlobalApiResponse<LinkData> {
+    }
+
+    private static final class LinkData {
+        private String javaName;
+        private String javaId;
+        private long bedrockId;
+    }
 }
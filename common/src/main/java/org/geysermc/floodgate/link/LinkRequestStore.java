@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+package org.geysermc.floodgate.link;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.geysermc.floodgate.api.link.LinkRequest;
+
+/**
+ * Keeps the link requests that haven't been verified yet in memory. Requests are removed by
+ * {@link #removeExpired()} once they're expired, and the oldest requests are removed when the
+ * store would otherwise grow beyond its maximum size. Verified and replaced requests are removed
+ * directly, so the store only holds the requests that can still be verified.
+ */
+public final class LinkRequestStore {
+    // every request has the same timeout, so the insertion order is also the expiration order
+    private final Map<String, LinkRequest> requests = new LinkedHashMap<>();
+
+    private final long linkTimeout;
+    private final int maxSize;
+
+    /**
+     * @param linkTimeout the time in seconds before a link request expires
+     * @param maxSize     the maximum amount of link requests to keep
+     */
+    public LinkRequestStore(long linkTimeout, int maxSize) {
+        this.linkTimeout = linkTimeout;
+        this.maxSize = maxSize;
+    }
+
+    public synchronized LinkRequest get(String javaUsername) {
+        return requests.get(javaUsername);
+    }
+
+    /**
+     * Adds the link request, replacing the existing link request of the Java player.
+     */
+    public synchronized void put(LinkRequest request) {
+        // remove the old request first, so that the new request is last in the expiration order
+        requests.remove(request.getJavaUsername());
+        requests.put(request.getJavaUsername(), request);
+
+        Iterator<LinkRequest> iterator = requests.values().iterator();
+        while (requests.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void remove(String javaUsername) {
+        requests.remove(javaUsername);
+    }
+
+    /**
+     * Removes all the link requests that are expired.
+     *
+     * @return the amount of link requests that have been removed
+     */
+    public synchronized int removeExpired() {
+        int removed = 0;
+        Iterator<LinkRequest> iterator = requests.values().iterator();
+        while (iterator.hasNext() && iterator.next().isExpired(linkTimeout)) {
+            iterator.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return requests.size();
+    }
+}
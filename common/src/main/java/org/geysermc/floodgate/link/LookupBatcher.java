@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+package org.geysermc.floodgate.link;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the lookups that arrive within a short delay of each other and sends them to the
+ * backend as one batch, e.g. when a lot of players join at the same time after a restart.
+ *
+ * @param <T> the result type of a single lookup
+ */
+final class LookupBatcher<T> {
+    private static final long BATCH_DELAY_MILLIS = 5;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final Function<Collection<UUID>, CompletableFuture<Map<UUID, T>>> batchLoader;
+    private final T absentValue;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<UUID, CompletableFuture<T>> pending = new HashMap<>();
+
+    /**
+     * @param batchLoader the function that looks up multiple players in a single call
+     * @param absentValue the value to complete the lookup with when the batch result doesn't
+     *                    contain the player
+     * @param scheduler   the scheduler to delay the sending of a batch with
+     */
+    LookupBatcher(
+            Function<Collection<UUID>, CompletableFuture<Map<UUID, T>>> batchLoader,
+            T absentValue,
+            ScheduledExecutorService scheduler) {
+        this.batchLoader = batchLoader;
+        this.absentValue = absentValue;
+        this.scheduler = scheduler;
+    }
+
+    CompletableFuture<T> lookup(UUID playerId) {
+        CompletableFuture<T> future;
+        Map<UUID, CompletableFuture<T>> fullBatch = null;
+        boolean firstOfBatch;
+
+        synchronized (this) {
+            future = pending.get(playerId);
+            if (future != null) {
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            pending.put(playerId, future);
+
+            firstOfBatch = pending.size() == 1;
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                fullBatch = takePending();
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        } else if (firstOfBatch) {
+            try {
+                scheduler.schedule(this::flush, BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException ignored) {
+                // we're shutting down, don't wait for other lookups
+                flush();
+            }
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<UUID, CompletableFuture<T>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private Map<UUID, CompletableFuture<T>> takePending() {
+        Map<UUID, CompletableFuture<T>> batch = pending;
+        pending = new HashMap<>();
+        return batch;
+    }
+
+    private void send(Map<UUID, CompletableFuture<T>> batch) {
+        CompletableFuture<Map<UUID, T>> result;
+        try {
+            result = batchLoader.apply(batch.keySet());
+        } catch (Exception exception) {
+            batch.values().forEach(future -> future.completeExceptionally(exception));
+            return;
+        }
+
+        result.whenComplete((results, error) -> {
+            if (error != null) {
+                batch.values().forEach(future -> future.completeExceptionally(error));
+                return;
+            }
+
+            batch.forEach((playerId, future) -> {
+                T value = results.get(playerId);
+                future.complete(value != null ? value : absentValue);
+            });
+        });
+    }
+}
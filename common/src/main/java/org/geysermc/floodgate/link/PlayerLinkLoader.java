@@ -47,6 +47,7 @@ import org.geysermc.floodgate.api.link.PlayerLink;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.util.Constants;
+import org.geysermc.floodgate.util.FloodgateExecutors;
 import org.geysermc.floodgate.util.Utils;
 
 @Singleton
@@ -55,12 +56,28 @@ public final class PlayerLinkLoader {
     @Inject private Injector injector;
     @Inject private FloodgateConfig config;
     @Inject private FloodgateLogger logger;
+    @Inject private FloodgateExecutors executors;
 
     @Inject
     @Named("dataDirectory")
     private Path dataDirectory;
 
     public PlayerLink load() {
+        PlayerLink playerLink = loadImplementation();
+        if (playerLink == null || playerLink instanceof DisabledPlayerLink) {
+            return playerLink;
+        }
+
+        FloodgateConfig.PlayerLinkConfig linkingConfig = config.getPlayerLink();
+        if (linkingConfig.getCacheSize() <= 0) {
+            return playerLink;
+        }
+        return new CachingPlayerLink(playerLink, linkingConfig.getCacheSize(),
+                linkingConfig.getCacheTime(), linkingConfig.getNotLinkedCacheTime(),
+                executors.getScheduler());
+    }
+
+    private PlayerLink loadImplementation() {
         if (config == null) {
             throw new IllegalStateException("Config cannot be null!");
         }
@@ -28,9 +28,11 @@ package org.geysermc.floodgate.module;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.OptionalBinder;
 import com.google.inject.name.Named;
 import io.netty.util.AttributeKey;
 import java.nio.file.Path;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import org.geysermc.floodgate.addon.data.HandshakeHandlersImpl;
 import org.geysermc.floodgate.api.FloodgateApi;
@@ -45,17 +47,21 @@ import org.geysermc.floodgate.config.loader.ConfigLoader;
 import org.geysermc.floodgate.config.loader.DefaultConfigHandler;
 import org.geysermc.floodgate.config.updater.ConfigFileUpdater;
 import org.geysermc.floodgate.config.updater.ConfigUpdater;
-import org.geysermc.floodgate.crypto.AesCipher;
 import org.geysermc.floodgate.crypto.AesKeyProducer;
 import org.geysermc.floodgate.crypto.Base64Topping;
 import org.geysermc.floodgate.crypto.FloodgateCipher;
 import org.geysermc.floodgate.crypto.KeyProducer;
 import org.geysermc.floodgate.inject.CommonPlatformInjector;
 import org.geysermc.floodgate.player.FloodgateHandshakeHandler;
+import org.geysermc.floodgate.player.LocalReplayGuard;
+import org.geysermc.floodgate.player.ReplayGuard;
+import org.geysermc.floodgate.player.ReplayGuardBackend;
+import org.geysermc.floodgate.player.SharedReplayGuard;
 import org.geysermc.floodgate.pluginmessage.PluginMessageManager;
 import org.geysermc.floodgate.skin.SkinApplier;
 import org.geysermc.floodgate.skin.SkinUploadManager;
 import org.geysermc.floodgate.util.LanguageManager;
+import org.geysermc.floodgate.util.PerThreadCipher;
 
 @RequiredArgsConstructor
 public class CommonModule extends AbstractModule {
@@ -66,6 +72,8 @@ public class CommonModule extends AbstractModule {
         bind(FloodgateApi.class).to(SimpleFloodgateApi.class);
         bind(PlatformInjector.class).to(CommonPlatformInjector.class);
         bind(HandshakeHandlers.class).to(HandshakeHandlersImpl.class);
+        // platform modules can provide a backend to share the replay guard with other instances
+        OptionalBinder.newOptionalBinder(binder(), ReplayGuardBackend.class);
     }
 
     @Provides
@@ -77,7 +85,7 @@ public class CommonModule extends AbstractModule {
     @Provides
     @Singleton
     public FloodgateCipher cipher() {
-        return new AesCipher(new Base64Topping());
+        return new PerThreadCipher(new Base64Topping());
     }
 
     @Provides
@@ -141,12 +149,25 @@ public class CommonModule extends AbstractModule {
             SimpleFloodgateApi api,
             FloodgateCipher cipher,
             FloodgateConfigHolder configHolder,
+            ReplayGuard replayGuard,
             SkinUploadManager skinUploadManager,
             @Named("playerAttribute") AttributeKey<FloodgatePlayer> playerAttribute,
             FloodgateLogger logger) {
 
         return new FloodgateHandshakeHandler(handshakeHandlers, api, cipher, configHolder,
-                skinUploadManager, playerAttribute, logger);
+                replayGuard, skinUploadManager, playerAttribute, logger);
+    }
+
+    @Provides
+    @Singleton
+    public ReplayGuard replayGuard(
+            Optional<ReplayGuardBackend> backend,
+            FloodgateConfigHolder configHolder) {
+        ReplayGuard localGuard = new LocalReplayGuard();
+        if (backend.isPresent()) {
+            return new SharedReplayGuard(localGuard, backend.get(), configHolder);
+        }
+        return localGuard;
     }
 
     @Provides
@@ -31,6 +31,7 @@ import com.google.inject.Singleton;
 import lombok.RequiredArgsConstructor;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.config.ProxyFloodgateConfig;
+import org.geysermc.floodgate.util.FloodgateExecutors;
 
 @RequiredArgsConstructor
 public final class ConfigLoadedModule extends AbstractModule {
@@ -48,4 +49,10 @@ public final class ConfigLoadedModule extends AbstractModule {
     public FloodgateConfig floodgateConfig() {
         return config;
     }
+
+    @Provides
+    @Singleton
+    public FloodgateExecutors floodgateExecutors() {
+        return new FloodgateExecutors(config.getMaxBlockingThreads());
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.net.SocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+import org.geysermc.floodgate.api.ProxyFloodgateApi;
+import org.geysermc.floodgate.util.BedrockData;
+
+/**
+ * Holds the encrypted data that the proxy sends to the servers a player connects to, so that server
+ * switches don't have to encrypt the data every time. The encrypted data is only reused when it's
+ * young enough to be accepted by the server and when the server didn't receive the same data
+ * before, since a server would deny the data as a replay otherwise. This relies on every server
+ * having its own {@link ReplayGuard}, or its own target when the servers share a
+ * {@link ReplayGuardBackend}.
+ */
+public final class EncryptedDataCache {
+    /**
+     * The maximum age of encrypted data before new data will be created. Half of the timestamp
+     * window, to leave room for latency and clock differences between the proxy and the servers.
+     */
+    private static final long MAX_REUSE_AGE = ReplayGuard.TIMESTAMP_WINDOW / 2;
+
+    private final Set<SocketAddress> receivers = new HashSet<>();
+    private String encryptedData;
+    private long timestamp;
+
+    /**
+     * Returns the encrypted data of the given player that can be send to the given server.
+     *
+     * @param player the player to return the encrypted data of
+     * @param server the address of the server the player is connecting to
+     * @param api    the api to encrypt new data with
+     * @return the encrypted data
+     */
+    public synchronized String get(
+            FloodgatePlayerImpl player,
+            SocketAddress server,
+            ProxyFloodgateApi api) {
+
+        long age = System.currentTimeMillis() - timestamp;
+        if (encryptedData == null || age > MAX_REUSE_AGE || age < 0 || !receivers.add(server)) {
+            BedrockData data = player.toBedrockData();
+            encryptedData = api.createEncryptedDataString(data);
+            timestamp = data.getTimestamp();
+
+            receivers.clear();
+            receivers.add(server);
+        }
+        return encryptedData;
+    }
+}
@@ -28,14 +28,11 @@ package org.geysermc.floodgate.player;
 import static org.geysermc.floodgate.util.BedrockData.EXPECTED_LENGTH;
 
 import com.google.common.base.Charsets;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
 import java.net.InetSocketAddress;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -52,43 +49,76 @@ import org.geysermc.floodgate.config.FloodgateConfigHolder;
 import org.geysermc.floodgate.crypto.FloodgateCipher;
 import org.geysermc.floodgate.skin.SkinUploadManager;
 import org.geysermc.floodgate.util.BedrockData;
+import org.geysermc.floodgate.util.Constants;
 import org.geysermc.floodgate.util.InvalidFormatException;
 import org.geysermc.floodgate.util.LinkedPlayer;
 import org.geysermc.floodgate.util.Utils;
 
 @RequiredArgsConstructor
 public final class FloodgateHandshakeHandler {
-    private final Cache<String, Long> handleCache =
-            CacheBuilder.newBuilder()
-                    .maximumSize(500)
-                    .expireAfterWrite(1, TimeUnit.MINUTES)
-                    .build();
-
     private final HandshakeHandlersImpl handshakeHandlers;
     private final SimpleFloodgateApi api;
     private final FloodgateCipher cipher;
     private final FloodgateConfigHolder configHolder;
+    private final ReplayGuard replayGuard;
     private final SkinUploadManager skinUploadManager;
     private final AttributeKey<FloodgatePlayer> playerAttribute;
     private final FloodgateLogger logger;
 
-    public HandshakeResult handle(Channel channel, @NonNull String originalHostname) {
-        String[] split = originalHostname.split("\0");
+    /**
+     * Handles the hostname of the handshake packet. The returned future is completed directly when
+     * no player link has to be fetched, otherwise it'll be completed on the event loop of the given
+     * channel once the player link lookup has finished.
+     *
+     * @param channel          the channel of the connection that sent the handshake
+     * @param originalHostname the hostname from the handshake packet
+     * @return a future holding the result of handling the handshake
+     */
+    public CompletableFuture<HandshakeResult> handle(
+            Channel channel,
+            @NonNull String originalHostname) {
+
+        // the hostname is split into segments by \0. We look for the Floodgate data segment while
+        // keeping track of offsets, so that the hostname without the data only has to be built once
+        int length = trimmedLength(originalHostname);
         String data = null;
+        int dataStart = -1;
+        int dataEnd = -1;
+
+        int segmentStart = 0;
+        while (segmentStart < length) {
+            int segmentEnd = originalHostname.indexOf('\0', segmentStart);
+            if (segmentEnd == -1 || segmentEnd > length) {
+                segmentEnd = length;
+            }
 
-        StringBuilder hostnameBuilder = new StringBuilder();
-        for (String value : split) {
-            if (data == null && FloodgateCipher.hasHeader(value)) {
-                data = value;
-                continue;
+            if (segmentEnd != segmentStart) {
+                String segment = originalHostname.substring(segmentStart, segmentEnd);
+                if (FloodgateCipher.hasHeader(segment)) {
+                    data = segment;
+                    dataStart = segmentStart;
+                    dataEnd = segmentEnd;
+                    break;
+                }
             }
-            hostnameBuilder.append(value).append('\0');
+            segmentStart = segmentEnd + 1;
         }
+
         // hostname now doesn't have Floodgate data anymore if it had
-        String hostname = hostnameBuilder.toString();
+        String hostname;
+        if (data == null) {
+            hostname = originalHostname.substring(0, length) + '\0';
+        } else {
+            StringBuilder hostnameBuilder = new StringBuilder(length)
+                    .append(originalHostname, 0, dataStart);
+            if (dataEnd < length) {
+                hostnameBuilder.append(originalHostname, dataEnd + 1, length).append('\0');
+            }
+            hostname = hostnameBuilder.toString();
+        }
 
         if (data == null) {
-            return callHandlerAndReturnResult(
+            return completedResult(
                     ResultType.NOT_FLOODGATE_DATA,
                     channel, null, hostname);
         }
@@ -101,7 +131,7 @@ public final class FloodgateHandshakeHandler {
             BedrockData bedrockData = BedrockData.fromString(decrypted);
 
             if (bedrockData.getDataLength() != EXPECTED_LENGTH) {
-                return callHandlerAndReturnResult(
+                return completedResult(
                         ResultType.INVALID_DATA_LENGTH,
                         channel, bedrockData, hostname);
             }
@@ -109,35 +139,89 @@ public final class FloodgateHandshakeHandler {
             // timestamp checks
 
             long timeDifference = System.currentTimeMillis() - bedrockData.getTimestamp();
-            if (timeDifference > 6000 || timeDifference < 0) {
-                return callHandlerAndReturnResult(
+            if (timeDifference > ReplayGuard.TIMESTAMP_WINDOW || timeDifference < 0) {
+                return completedResult(
                         ResultType.TIMESTAMP_DENIED,
                         channel, bedrockData, hostname);
             }
 
-            Long cachedTimestamp = handleCache.getIfPresent(bedrockData.getXuid());
-            if (cachedTimestamp != null) {
-                // the cached timestamp is newer than the gotten timestamp
-                // you also can't reuse the data (the timestamp is there to prevent that as well)
-                if (cachedTimestamp >= bedrockData.getTimestamp()) {
-                    return callHandlerAndReturnResult(
-                            ResultType.TIMESTAMP_DENIED,
-                            channel, bedrockData, hostname);
-                }
+            // you can't reuse the data or use data older than data that has already been used
+            long xuid = Long.parseLong(bedrockData.getXuid());
+            if (!replayGuard.tryUse(xuid, bedrockData.getTimestamp())) {
+                return completedResult(
+                        ResultType.TIMESTAMP_DENIED,
+                        channel, bedrockData, hostname);
             }
 
-            handleCache.put(bedrockData.getXuid(), bedrockData.getTimestamp());
+            // we'll use the LinkedPlayer provided by Bungee or Velocity (if they included one)
+            if (bedrockData.hasPlayerLink()) {
+                return CompletableFuture.completedFuture(handlePart2(
+                        channel, bedrockData, hostname, bedrockData.getLinkedPlayer()));
+            }
 
+            if (!api.getPlayerLink().isEnabled()) {
+                return CompletableFuture.completedFuture(
+                        handlePart2(channel, bedrockData, hostname, null));
+            }
 
-            LinkedPlayer linkedPlayer;
+            // the lookup can take a while (e.g. global linking), so we shouldn't block the
+            // event loop while waiting on it. We'll continue on the event loop once it's done
+            UUID javaUuid = Utils.getJavaUuid(bedrockData.getXuid());
+            return api.getPlayerLink().getLinkedPlayer(javaUuid).handleAsync(
+                    (linkedPlayer, throwable) -> {
+                        if (throwable != null) {
+                            // we don't know if the player is linked. By default they join as not
+                            // linked, so that an outage of the linking backend doesn't lock
+                            // every Bedrock player out
+                            if (configHolder.get().getPlayerLink().isDenyOnLookupFailure()) {
+                                logger.error("Failed to fetch the linked player of {}",
+                                        throwable, javaUuid);
+                                return linkFetchFailed(channel, bedrockData, hostname);
+                            }
+                            logger.warn("Failed to fetch the linked player of {}, " +
+                                            "they'll join as not linked: {}",
+                                    javaUuid, throwable.getMessage());
+                        }
+                        return handlePart2(channel, bedrockData, hostname, linkedPlayer);
+                    },
+                    channel.eventLoop());
 
-            // we'll use the LinkedPlayer provided by Bungee or Velocity (if they included one)
-            if (bedrockData.hasPlayerLink()) {
-                linkedPlayer = bedrockData.getLinkedPlayer();
-            } else {
-                // every implementation (Bukkit, Bungee and Velocity) run this constructor async,
-                // so we should be fine doing this synchronised.
-                linkedPlayer = fetchLinkedPlayer(Utils.getJavaUuid(bedrockData.getXuid()));
+        } catch (InvalidFormatException formatException) {
+            // only header exceptions should return 'not floodgate data',
+            // all the other format exceptions are because of invalid/tempered Floodgate data
+            if (formatException.isHeader()) {
+                return completedResult(
+                        ResultType.NOT_FLOODGATE_DATA,
+                        channel, null, hostname);
+            }
+
+            formatException.printStackTrace();
+
+            return completedResult(
+                    ResultType.EXCEPTION,
+                    channel, null, hostname);
+
+        } catch (Exception exception) {
+            exception.printStackTrace();
+
+            return completedResult(
+                    ResultType.EXCEPTION,
+                    channel, null, hostname);
+        }
+    }
+
+    private HandshakeResult handlePart2(
+            Channel channel,
+            BedrockData bedrockData,
+            String hostname,
+            LinkedPlayer linkedPlayer) {
+
+        try {
+            // the connection might've been closed while we were fetching the linked player
+            if (!channel.isOpen()) {
+                return callHandlerAndReturnResult(
+                        ResultType.EXCEPTION,
+                        channel, bedrockData, hostname);
             }
 
             HandshakeData handshakeData = new HandshakeDataImpl(
@@ -158,7 +242,7 @@ public final class FloodgateHandshakeHandler {
             FloodgatePlayer player =
                     FloodgatePlayerImpl.from(bedrockData, handshakeData);
 
-            api.addPlayer(player.getJavaUniqueId(), player);
+            api.addPlayer(player);
 
             channel.attr(playerAttribute).set(player);
 
@@ -168,22 +252,6 @@ public final class FloodgateHandshakeHandler {
             player.addProperty(PropertyKey.SOCKET_ADDRESS, socketAddress);
 
             return new HandshakeResult(ResultType.SUCCESS, handshakeData, bedrockData, player);
-
-        } catch (InvalidFormatException formatException) {
-            // only header exceptions should return 'not floodgate data',
-            // all the other format exceptions are because of invalid/tempered Floodgate data
-            if (formatException.isHeader()) {
-                return callHandlerAndReturnResult(
-                        ResultType.NOT_FLOODGATE_DATA,
-                        channel, null, hostname);
-            }
-
-            formatException.printStackTrace();
-
-            return callHandlerAndReturnResult(
-                    ResultType.EXCEPTION,
-                    channel, null, hostname);
-
         } catch (Exception exception) {
             exception.printStackTrace();
 
@@ -193,6 +261,15 @@ public final class FloodgateHandshakeHandler {
         }
     }
 
+    private CompletableFuture<HandshakeResult> completedResult(
+            ResultType resultType,
+            Channel channel,
+            BedrockData bedrockData,
+            String hostname) {
+        return CompletableFuture.completedFuture(
+                callHandlerAndReturnResult(resultType, channel, bedrockData, hostname));
+    }
+
     private HandshakeResult callHandlerAndReturnResult(
             ResultType resultType,
             Channel channel,
@@ -214,30 +291,62 @@ public final class FloodgateHandshakeHandler {
     }
 
     private String correctHostname(String hostname, BedrockData data, UUID correctUuid) {
-        // replace the ip and uuid with the Bedrock client IP and an uuid based of the xuid
-        String[] split = hostname.split("\0");
-        if (split.length >= 3) {
-            if (logger.isDebug()) {
-                logger.info("Replacing hostname arg1 '{}' with '{}' and arg2 '{}' with '{}'",
-                        split[1], data.getIp(), split[2], correctUuid.toString());
-            }
-            split[1] = data.getIp();
-            split[2] = correctUuid.toString();
+        // replace the ip and uuid with the Bedrock client IP and an uuid based of the xuid.
+        // Trailing separators aren't part of the corrected hostname
+        int length = trimmedLength(hostname);
+        int ipStart = hostname.indexOf('\0') + 1;
+        int uuidStart = ipStart != 0 ? hostname.indexOf('\0', ipStart) + 1 : 0;
+        if (uuidStart == 0 || uuidStart > length) {
+            return hostname.substring(0, length);
         }
-        return String.join("\0", split);
+
+        int uuidEnd = hostname.indexOf('\0', uuidStart);
+        if (uuidEnd == -1 || uuidEnd > length) {
+            uuidEnd = length;
+        }
+
+        String ip = data.getIp();
+        String uuid = correctUuid.toString();
+
+        if (logger.isDebug()) {
+            logger.info("Replacing hostname arg1 '{}' with '{}' and arg2 '{}' with '{}'",
+                    hostname.substring(ipStart, uuidStart - 1), ip,
+                    hostname.substring(uuidStart, uuidEnd), uuid);
+        }
+
+        return new StringBuilder(ipStart + ip.length() + uuid.length() + 1 + length - uuidEnd)
+                .append(hostname, 0, ipStart)
+                .append(ip).append('\0')
+                .append(uuid)
+                .append(hostname, uuidEnd, length)
+                .toString();
     }
 
-    private LinkedPlayer fetchLinkedPlayer(UUID javaUniqueId) {
-        if (!api.getPlayerLink().isEnabled()) {
-            return null;
+    /**
+     * Returns the length of the given hostname without the trailing \0 characters. This matches
+     * the segments that {@link String#split(String)} would've returned.
+     */
+    private static int trimmedLength(String hostname) {
+        int length = hostname.length();
+        while (length > 0 && hostname.charAt(length - 1) == '\0') {
+            length--;
         }
+        return length;
+    }
 
-        try {
-            return api.getPlayerLink().getLinkedPlayer(javaUniqueId).get();
-        } catch (InterruptedException | ExecutionException exception) {
-            exception.printStackTrace();
-            return null;
+    private HandshakeResult linkFetchFailed(
+            Channel channel,
+            BedrockData bedrockData,
+            String hostname) {
+
+        HandshakeResult result = callHandlerAndReturnResult(
+                ResultType.EXCEPTION,
+                channel, bedrockData, hostname);
+        // the disconnect reason is used over the message of the result type
+        if (!result.getHandshakeData().shouldDisconnect()) {
+            result.getHandshakeData().setDisconnectReason(Constants.LINK_FETCH_FAILED_MESSAGE);
         }
+        return result;
     }
 
     public enum ResultType {
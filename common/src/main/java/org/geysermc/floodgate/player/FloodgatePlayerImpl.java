@@ -70,6 +70,8 @@ public final class FloodgatePlayerImpl implements FloodgatePlayer {
     private final int subscribeId;
     private final String verifyCode;
 
+    private final EncryptedDataCache encryptedDataCache = new EncryptedDataCache();
+
     @Getter(AccessLevel.PRIVATE)
     public Map<PropertyKey, Object> propertyKeyToValue;
     @Getter(AccessLevel.PRIVATE)
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.geysermc.floodgate.api.player.FloodgatePlayer;
+
+/**
+ * Keeps track of all the online Floodgate players. Players are indexed by their Floodgate uuid
+ * ({@link FloodgatePlayer#getJavaUniqueId()}), by their linked Java uuid (if linked), by their
+ * Bedrock username and by the username they'll have on the server. Lookups are lock-free, adding
+ * and removing a player is done atomically across all the indexes.<br>
+ * An immutable snapshot of all the players is kept as well. It's only rebuilt when a player is
+ * added or removed, since it's requested a lot more often than players join or leave.
+ */
+public final class FloodgatePlayerRegistry {
+    private final Map<UUID, FloodgatePlayer> byJavaUniqueId = new ConcurrentHashMap<>();
+    private final Map<UUID, FloodgatePlayer> byLinkedUniqueId = new ConcurrentHashMap<>();
+    private final Map<String, FloodgatePlayer> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, FloodgatePlayer> byCorrectUsername = new ConcurrentHashMap<>();
+
+    private volatile Collection<FloodgatePlayer> snapshot = ImmutableSet.of();
+    private volatile FloodgatePlayer[] snapshotArray = new FloodgatePlayer[0];
+
+    /**
+     * Adds the given player to all the indexes. A player that was registered with the same
+     * Floodgate uuid will be replaced.
+     *
+     * @param player the player to add
+     * @return the player that has been replaced, or null if there was none
+     */
+    @Nullable
+    public synchronized FloodgatePlayer add(FloodgatePlayer player) {
+        FloodgatePlayer previous = byJavaUniqueId.put(player.getJavaUniqueId(), player);
+        if (previous != null) {
+            removeSecondary(previous);
+        }
+
+        if (player.getLinkedPlayer() != null) {
+            byLinkedUniqueId.put(player.getCorrectUniqueId(), player);
+        }
+        byUsername.put(player.getUsername(), player);
+        byCorrectUsername.put(normalize(player.getCorrectUsername()), player);
+        updateSnapshot();
+        return previous;
+    }
+
+    /**
+     * Removes the given player from all the indexes, but only if it's still the registered
+     * instance.
+     *
+     * @param player the player to remove
+     * @return true if the player has been removed
+     */
+    public synchronized boolean remove(FloodgatePlayer player) {
+        if (!byJavaUniqueId.remove(player.getJavaUniqueId(), player)) {
+            return false;
+        }
+        removeSecondary(player);
+        updateSnapshot();
+        return true;
+    }
+
+    private void removeSecondary(FloodgatePlayer player) {
+        if (player.getLinkedPlayer() != null) {
+            byLinkedUniqueId.remove(player.getCorrectUniqueId(), player);
+        }
+        byUsername.remove(player.getUsername(), player);
+        byCorrectUsername.remove(normalize(player.getCorrectUsername()), player);
+    }
+
+    private void updateSnapshot() {
+        ImmutableSet<FloodgatePlayer> players = ImmutableSet.copyOf(byJavaUniqueId.values());
+        snapshotArray = players.toArray(new FloodgatePlayer[0]);
+        snapshot = players;
+    }
+
+    @Nullable
+    public FloodgatePlayer getByJavaUniqueId(UUID javaUniqueId) {
+        return byJavaUniqueId.get(javaUniqueId);
+    }
+
+    @Nullable
+    public FloodgatePlayer getByLinkedUniqueId(UUID linkedUniqueId) {
+        return byLinkedUniqueId.get(linkedUniqueId);
+    }
+
+    /**
+     * Returns the player with the given Bedrock username, see {@link
+     * FloodgatePlayer#getUsername()}.
+     */
+    @Nullable
+    public FloodgatePlayer getByUsername(String username) {
+        return byUsername.get(username);
+    }
+
+    /**
+     * Returns the player who is known by the given username on the server (case insensitive),
+     * see {@link FloodgatePlayer#getCorrectUsername()}.
+     */
+    @Nullable
+    public FloodgatePlayer getByCorrectUsername(String username) {
+        return byCorrectUsername.get(normalize(username));
+    }
+
+    /**
+     * Returns an immutable snapshot of all the registered players. The same instance is returned
+     * until a player is added or removed.
+     */
+    public Collection<FloodgatePlayer> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Calls the given consumer for every registered player, without allocating a collection or
+     * iterator.
+     *
+     * @param consumer the consumer to call for every player
+     */
+    public void forEach(Consumer<? super FloodgatePlayer> consumer) {
+        FloodgatePlayer[] players = snapshotArray;
+        for (int i = 0; i < players.length; i++) {
+            consumer.accept(players[i]);
+        }
+    }
+
+    public int size() {
+        return byJavaUniqueId.size();
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+/**
+ * A {@link ReplayGuard} that keeps track of the used Floodgate data in memory. Entries are stored
+ * in a ring of time buckets that covers the timestamp window, so entries expire in bulk once
+ * they're too old to be accepted anyway instead of being evicted based on the amount of joins.
+ * Players are spread over multiple stripes so that handshakes on different event loops rarely share
+ * a lock.
+ */
+public final class LocalReplayGuard implements ReplayGuard {
+    private static final int STRIPE_COUNT = 16;
+    private static final long DEFAULT_BUCKET_MILLIS = 1000;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final long bucketMillis;
+
+    public LocalReplayGuard(long timestampWindow, long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+        // one extra bucket, because the oldest bucket is only partially inside the window
+        int bucketCount = (int) ((timestampWindow + bucketMillis - 1) / bucketMillis) + 1;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe(bucketCount);
+        }
+    }
+
+    public LocalReplayGuard() {
+        this(TIMESTAMP_WINDOW, DEFAULT_BUCKET_MILLIS);
+    }
+
+    @Override
+    public boolean tryUse(long xuid, long timestamp) {
+        int hash = Long.hashCode(xuid);
+        hash ^= hash >>> 16;
+        return stripes[hash & (STRIPE_COUNT - 1)]
+                .tryUse(xuid, timestamp, Math.floorDiv(timestamp, bucketMillis));
+    }
+
+    private static final class Stripe {
+        private final Long2LongOpenHashMap[] buckets;
+        private final long[] bucketEpochs;
+
+        private Stripe(int bucketCount) {
+            buckets = new Long2LongOpenHashMap[bucketCount];
+            bucketEpochs = new long[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = new Long2LongOpenHashMap();
+                buckets[i].defaultReturnValue(Long.MIN_VALUE);
+                bucketEpochs[i] = Long.MIN_VALUE;
+            }
+        }
+
+        private synchronized boolean tryUse(long xuid, long timestamp, long epoch) {
+            int bucketCount = buckets.length;
+            long oldestEpoch = epoch - bucketCount + 1;
+
+            // data with a timestamp older than the oldest bucket can't be newer than this timestamp
+            for (int i = 0; i < bucketCount; i++) {
+                if (bucketEpochs[i] >= oldestEpoch && buckets[i].get(xuid) >= timestamp) {
+                    return false;
+                }
+            }
+
+            int index = (int) Math.floorMod(epoch, (long) bucketCount);
+            Long2LongOpenHashMap bucket = buckets[index];
+            if (bucketEpochs[index] != epoch) {
+                // the bucket is already used by newer data, this data is about to expire anyway
+                if (bucketEpochs[index] > epoch) {
+                    return true;
+                }
+                bucket.clear();
+                bucketEpochs[index] = epoch;
+            }
+
+            if (bucket.get(xuid) < timestamp) {
+                bucket.put(xuid, timestamp);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+/**
+ * Guards against Floodgate data being used more than once. Every server has its own
+ * {@link LocalReplayGuard}, a {@link ReplayGuardBackend} can be provided to share the used data
+ * with other instances as well ({@link SharedReplayGuard}). Shared data is scoped by a target,
+ * since a proxy sends the same encrypted data to every server a player switches to within a short
+ * time (see {@link EncryptedDataCache}) and a guard that is shared between those servers without a
+ * target would deny the player on every server but the first.
+ */
+public interface ReplayGuard {
+    /**
+     * The maximum age (in milliseconds) Floodgate data can have before it is denied.
+     */
+    long TIMESTAMP_WINDOW = 6000;
+
+    /**
+     * Marks the Floodgate data of the given player as used.
+     *
+     * @param xuid      the xuid of the Bedrock player the data belongs to
+     * @param timestamp the timestamp of the Floodgate data
+     * @return true if the data can be used, false if this data (or data that is newer) has already
+     * been used
+     */
+    boolean tryUse(long xuid, long timestamp);
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+/**
+ * A store of used Floodgate data that can be shared between multiple Floodgate instances, for
+ * example proxies behind a load balancer. It can be provided by binding it through Guice's
+ * {@link com.google.inject.multibindings.OptionalBinder} in a platform module, Floodgate will then
+ * use it in addition to its {@link LocalReplayGuard}.<br>
+ * Entries are keyed by the target, the xuid and the timestamp. The target is the name of the
+ * group of instances that should deny each other's data (see {@code replay-guard-target} in the
+ * config). Instances that receive the same data by design, like the servers behind a proxy that
+ * reuses the encrypted data on server switches ({@link EncryptedDataCache}), have to use different
+ * targets.
+ */
+public interface ReplayGuardBackend {
+    /**
+     * Marks the Floodgate data of the given player as used for the given target. Entries only have
+     * to be kept for {@link ReplayGuard#TIMESTAMP_WINDOW}, since older data is denied anyway. This
+     * method is called from the Netty event loop, so it should answer quickly.
+     *
+     * @param target    the target the data is used for
+     * @param xuid      the xuid of the Bedrock player the data belongs to
+     * @param timestamp the timestamp of the Floodgate data
+     * @return true if the data can be used, false if this data (or data that is newer) has already
+     * been used for the given target
+     */
+    boolean tryUse(String target, long xuid, long timestamp);
+}
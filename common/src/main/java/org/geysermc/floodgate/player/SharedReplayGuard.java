@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import java.util.UUID;
+import org.geysermc.floodgate.config.FloodgateConfigHolder;
+
+/**
+ * A {@link ReplayGuard} that checks the data against a {@link ReplayGuardBackend} that can be
+ * shared with other Floodgate instances. The data is checked against the local guard first, so
+ * data that is replayed on this instance doesn't have to reach the backend.
+ */
+public final class SharedReplayGuard implements ReplayGuard {
+    private final ReplayGuard localGuard;
+    private final ReplayGuardBackend backend;
+    private final FloodgateConfigHolder configHolder;
+    // used when no target has been configured, which means that nothing will be shared
+    private final String instanceTarget = UUID.randomUUID().toString();
+
+    public SharedReplayGuard(
+            ReplayGuard localGuard,
+            ReplayGuardBackend backend,
+            FloodgateConfigHolder configHolder) {
+        this.localGuard = localGuard;
+        this.backend = backend;
+        this.configHolder = configHolder;
+    }
+
+    @Override
+    public boolean tryUse(long xuid, long timestamp) {
+        return localGuard.tryUse(xuid, timestamp) && backend.tryUse(target(), xuid, timestamp);
+    }
+
+    private String target() {
+        String target = configHolder.get().getReplayGuardTarget();
+        return target != null && !target.isEmpty() ? target : instanceTarget;
+    }
+}
@@ -25,6 +25,7 @@
 
 package org.geysermc.floodgate.pluginmessage;
 
+import io.netty.buffer.ByteBuf;
 import java.util.UUID;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -34,16 +35,17 @@ public interface PluginMessageChannel {
 
     String getIdentifier();
 
-    Result handleProxyCall(
-            byte[] data,
-            UUID targetUuid,
-            String targetUsername,
-            Identity targetIdentity,
-            UUID sourceUuid,
-            String sourceUsername,
-            Identity sourceIdentity);
+    /**
+     * Handles a plugin message that passes through the proxy. The data buffer is only valid during
+     * this call and the reader index of the buffer doesn't have to be restored.
+     */
+    Result handleProxyCall(ByteBuf data, PluginMessageContext context);
 
-    Result handleServerCall(byte[] data, UUID targetUuid, String targetUsername);
+    /**
+     * Handles a plugin message that has been sent to the server by the given player. The data
+     * buffer is only valid during this call.
+     */
+    Result handleServerCall(ByteBuf data, UUID targetUuid, String targetUsername);
 
     @Getter
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
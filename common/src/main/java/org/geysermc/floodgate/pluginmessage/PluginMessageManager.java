@@ -26,13 +26,18 @@
 package org.geysermc.floodgate.pluginmessage;
 
 import com.google.inject.Inject;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class PluginMessageManager {
     private final Map<Class<? extends PluginMessageChannel>, PluginMessageChannel> classInstanceMap = new HashMap<>();
-    private final Map<String, PluginMessageChannel> identifierInstanceMap = new HashMap<>();
+    private final Map<String, Integer> identifierIdMap = new HashMap<>();
+    // the channels indexed by their channel id
+    private PluginMessageChannel[] channels = new PluginMessageChannel[0];
 
     @Inject
     public void addChannels(Set<PluginMessageChannel> channels) {
@@ -40,10 +45,18 @@ public class PluginMessageManager {
             return;
         }
 
-        for (PluginMessageChannel channel : channels) {
+        // sorted, so that the channel ids are the same every time
+        List<PluginMessageChannel> sortedChannels = new ArrayList<>(channels);
+        sortedChannels.sort(Comparator.comparing(PluginMessageChannel::getIdentifier));
+
+        PluginMessageChannel[] channelsById = new PluginMessageChannel[sortedChannels.size()];
+        for (int channelId = 0; channelId < channelsById.length; channelId++) {
+            PluginMessageChannel channel = sortedChannels.get(channelId);
             classInstanceMap.put(channel.getClass(), channel);
-            identifierInstanceMap.put(channel.getIdentifier(), channel);
+            identifierIdMap.put(channel.getIdentifier(), channelId);
+            channelsById[channelId] = channel;
         }
+        this.channels = channelsById;
     }
 
     @SuppressWarnings("unchecked")
@@ -52,6 +65,31 @@ public class PluginMessageManager {
     }
 
     public PluginMessageChannel getChannel(String identifier) {
-        return identifierInstanceMap.get(identifier);
+        return getChannel(getChannelId(identifier));
+    }
+
+    /**
+     * Returns the channel id of the channel with the given identifier. Channel ids are assigned
+     * once all the channels are known and range from 0 to {@link #getChannelCount()} (exclusive),
+     * so they can be used as index in platform specific lookup tables.
+     *
+     * @param identifier the identifier of the channel, e.g. floodgate:form
+     * @return the channel id, or -1 if there is no channel with the given identifier
+     */
+    public int getChannelId(String identifier) {
+        Integer channelId = identifierIdMap.get(identifier);
+        return channelId != null ? channelId : -1;
+    }
+
+    public PluginMessageChannel getChannel(int channelId) {
+        PluginMessageChannel[] channels = this.channels;
+        if (channelId < 0 || channelId >= channels.length) {
+            return null;
+        }
+        return channels[channelId];
+    }
+
+    public int getChannelCount() {
+        return channels.length;
     }
 }
@@ -27,38 +27,90 @@ package org.geysermc.floodgate.pluginmessage.channel;
 
 import com.google.common.base.Charsets;
 import com.google.inject.Inject;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
-import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
 import org.geysermc.cumulus.Form;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.platform.pluginmessage.PluginMessageUtils;
 import org.geysermc.floodgate.pluginmessage.PluginMessageChannel;
+import org.geysermc.floodgate.pluginmessage.PluginMessageContext;
+import org.geysermc.floodgate.pluginmessage.channel.PendingFormStore.PendingForm;
+import org.geysermc.floodgate.util.FloodgateExecutors;
 
+/**
+ * Sends forms to Bedrock players and handles their responses. A form message contains the form
+ * type (1 byte), the form id (2 bytes) and the json data of the form. A response contains the form
+ * id followed by the response data.<br>
+ * Clients can announce which optional features they support by sending a message with the
+ * reserved form id {@link #CAPABILITIES_ID} followed by a byte with capability flags. The client
+ * has to send it after every login of its Java session (including server switches), so that every
+ * server behind a proxy receives it. Both the proxy and the server keep track of it, and clients
+ * that never send it only receive plain forms.
+ * <ul>
+ * <li>{@code 0x01} compressed forms: json data of at least
+ * {@link FormCompression#MIN_COMPRESS_SIZE} bytes can be sent deflated using the preset dictionary
+ * of {@link FormCompression}. These messages have the {@code 0x80} bit set in the form type
+ * byte.</li>
+ * </ul>
+ */
 public class FormChannel implements PluginMessageChannel {
-    private final Short2ObjectMap<Form> storedForms = new Short2ObjectOpenHashMap<>();
-    private final AtomicInteger nextFormId = new AtomicInteger(0);
+    /**
+     * The form id the client uses to tell which capabilities it supports. The byte after the form
+     * id contains the capability flags.
+     */
+    static final short CAPABILITIES_ID = 0x7FFF;
+    private static final int COMPRESSION_CAPABILITY = 0x01;
+    // set in the form type byte when the json data of the form is compressed
+    private static final int COMPRESSED_BIT = 0x80;
+
+    private static final long FORM_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_FORMS_PER_PLAYER = 32;
+    // one server tick
+    private static final long FLUSH_DELAY = 50;
+
+    private final PendingFormStore pendingForms = new PendingFormStore(MAX_FORMS_PER_PLAYER);
+    // the forms of every player that haven't been sent yet. A player is only in here while a
+    // flush for them is scheduled or running
+    private final Map<UUID, FormQueue> queuedForms = new HashMap<>();
+    private final Set<UUID> compressionSupported = ConcurrentHashMap.newKeySet();
 
     @Inject private PluginMessageUtils pluginMessageUtils;
     @Inject private FloodgateConfig config;
     @Inject private FloodgateLogger logger;
 
+    private Executor executor;
+    private ScheduledExecutorService scheduler;
+
+    @Inject
+    public void init(FloodgateExecutors executors) {
+        executor = executors.getBlockingExecutor();
+        scheduler = executors.getScheduler();
+        scheduler.scheduleWithFixedDelay(
+                () -> timeout(pendingForms.removeExpired(System.currentTimeMillis())),
+                30, 30, TimeUnit.SECONDS);
+    }
+
     @Override
     public String getIdentifier() {
         return "floodgate:form";
     }
 
     @Override
-    public Result handleProxyCall(
-            byte[] data,
-            UUID targetUuid,
-            String targetUsername,
-            Identity targetIdentity,
-            UUID sourceUuid,
-            String sourceUsername,
-            Identity sourceIdentity) {
+    public Result handleProxyCall(ByteBuf data, PluginMessageContext context) {
+        Identity sourceIdentity = context.getSourceIdentity();
 
         if (sourceIdentity == Identity.SERVER) {
             // send it to the client
@@ -66,70 +118,314 @@ public class FormChannel implements PluginMessageChannel {
         }
 
         if (sourceIdentity == Identity.PLAYER) {
-            if (data.length < 2) {
+            if (data.readableBytes() < 2) {
                 return Result.kick("Invalid form response");
             }
 
             short formId = getFormId(data);
 
+            // both the proxy and the server have to know the capabilities of the client
+            if (formId == CAPABILITIES_ID) {
+                handleCapabilities(context.getSourceUuid(), data);
+                return Result.forward();
+            }
+
             // if the bit is not set, it's for the connected server
             if ((formId & 0x8000) == 0) {
                 return Result.forward();
             }
 
-            if (!callResponseConsumer(data)) {
+            if (!callResponseConsumer(context.getSourceUuid(), data)) {
                 logger.error("Couldn't find stored form with id {} for player {}",
-                        formId, sourceUsername);
+                        formId, context.getSourceUsername());
             }
         }
         return Result.handled();
     }
 
     @Override
-    public Result handleServerCall(byte[] data, UUID targetUuid, String targetUsername) {
-        callResponseConsumer(data);
+    public Result handleServerCall(ByteBuf data, UUID targetUuid, String targetUsername) {
+        if (data.readableBytes() < 2) {
+            return Result.handled();
+        }
+        if (getFormId(data) == CAPABILITIES_ID) {
+            handleCapabilities(targetUuid, data);
+            return Result.handled();
+        }
+        callResponseConsumer(targetUuid, data);
         return Result.handled();
     }
 
-    public boolean sendForm(UUID player, Form form) {
-        byte[] formData = createFormData(form);
-        return pluginMessageUtils.sendMessage(player, false, getIdentifier(), formData);
+    /**
+     * Queues the form to be sent to the given player. The forms that are queued for the player
+     * within the same tick are created and sent together on another thread, in the order they
+     * have been queued. A form that is queued twice is only sent once, and a form that is
+     * identical to the form sent before it is merged with that form if merge-identical-forms is
+     * enabled.<br>
+     * The caller should make sure that the player is online, since that is only known once the
+     * form has been sent. A form that couldn't be sent is handled like a form that has been closed.
+     */
+    public void sendForm(UUID player, Form form) {
+        sendForm(player, form, null);
+    }
+
+    /**
+     * Queues the form to be sent to the given player, like {@link #sendForm(UUID, Form)}. A form
+     * with the same replace key that is still queued is replaced by this form, and is handled like
+     * a form that has been closed. Forms that have already been sent aren't affected.
+     *
+     * @param replaceKey the key of the forms this form supersedes, or null to not replace forms
+     */
+    public void sendForm(UUID player, Form form, String replaceKey) {
+        Form superseded;
+        FormQueue newQueue = null;
+        synchronized (queuedForms) {
+            FormQueue queue = queuedForms.get(player);
+            if (queue == null) {
+                queue = newQueue = new FormQueue();
+                queuedForms.put(player, queue);
+            }
+            superseded = queue.add(form, replaceKey);
+        }
+
+        if (superseded != null) {
+            timeout(superseded);
+        }
+        if (newQueue != null) {
+            FormQueue queue = newQueue;
+            // forms sent within the same tick are sent together
+            scheduler.schedule(
+                    () -> executor.execute(() -> flushForms(player, queue)),
+                    FLUSH_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the queued forms of the player. Every queue has only one flush, forms that are queued
+     * while the forms are being sent are sent by the same flush. The queue is removed once it's
+     * empty, so the next form creates a new queue with its own flush.
+     */
+    private void flushForms(UUID player, FormQueue queue) {
+        while (true) {
+            List<QueuedForm> forms;
+            synchronized (queuedForms) {
+                // the player left while the forms were being sent
+                if (queuedForms.get(player) != queue) {
+                    return;
+                }
+                if (queue.forms.isEmpty()) {
+                    queuedForms.remove(player);
+                    return;
+                }
+                forms = new ArrayList<>(queue.forms);
+                queue.forms.clear();
+            }
+
+            for (QueuedForm queuedForm : forms) {
+                sendQueuedForm(player, queuedForm.form);
+            }
+        }
+    }
+
+    private void sendQueuedForm(UUID player, Form form) {
+        try {
+            String jsonData = form.getJsonData();
+            // no need to send the same form again if the player didn't respond to it yet
+            if (config.isMergeIdenticalForms() && pendingForms.merge(player, form, jsonData)) {
+                return;
+            }
+
+            PendingForm pendingForm = addPendingForm(player, form, jsonData);
+            byte[] formData = createFormData(player, pendingForm.getFormId(), form, jsonData);
+            if (!pluginMessageUtils.sendMessage(player, false, getIdentifier(), formData)) {
+                if (pendingForms.remove(player, pendingForm.getFormId()) != null) {
+                    timeout(pendingForm);
+                }
+            }
+        } catch (Exception exception) {
+            logger.error("Failed to send form to {}", exception, player);
+        }
+    }
+
+    public byte[] createFormData(UUID player, Form form) {
+        String jsonData = form.getJsonData();
+        PendingForm pendingForm = addPendingForm(player, form, jsonData);
+        return createFormData(player, pendingForm.getFormId(), form, jsonData);
+    }
+
+    private PendingForm addPendingForm(UUID player, Form form, String jsonData) {
+        // signed bit is used to check if the form is from a proxy or a server
+        int formIdBit = config.isProxy() ? 0x8000 : 0;
+
+        long deadline = System.currentTimeMillis() + FORM_TIMEOUT;
+        return pendingForms.add(player, form, jsonData, deadline, formIdBit, this::timeout);
     }
 
-    public byte[] createFormData(Form form) {
-        short formId = getNextFormId();
-        if (config.isProxy()) {
-            formId |= 0x8000;
+    private byte[] createFormData(UUID player, short formId, Form form, String formJson) {
+        return createFormData(form.getType().ordinal(), formId, formJson,
+                compressionSupported.contains(player));
+    }
+
+    /**
+     * Creates the form data. The data is built in pooled direct buffers, so that only the returned
+     * array has to be allocated for every form.
+     *
+     * @param compress whether the json data can be compressed, the compressed data is only used
+     *                 when it's smaller than the json data
+     */
+    static byte[] createFormData(int formType, short formId, String formJson, boolean compress) {
+        ByteBuf data = ByteBufAllocator.DEFAULT.directBuffer(3 + ByteBufUtil.utf8Bytes(formJson));
+        try {
+            data.writeByte(formType);
+            data.writeShort(formId);
+            ByteBufUtil.writeUtf8(data, formJson);
+
+            int jsonLength = data.readableBytes() - 3;
+            if (compress && jsonLength >= FormCompression.MIN_COMPRESS_SIZE) {
+                byte[] compressed = createCompressedFormData(
+                        formType, formId, data.slice(3, jsonLength), data.readableBytes());
+                if (compressed != null) {
+                    return compressed;
+                }
+            }
+            return ByteBufUtil.getBytes(data);
+        } finally {
+            data.release();
         }
-        storedForms.put(formId, form);
+    }
 
-        byte[] jsonData = form.getJsonData().getBytes(Charsets.UTF_8);
+    /**
+     * Creates the form data using the compressed json data of the form.
+     *
+     * @return the compressed form data, or null if it isn't smaller than the uncompressed data
+     */
+    private static byte[] createCompressedFormData(
+            int formType,
+            short formId,
+            ByteBuf jsonData,
+            int uncompressedLength) {
 
-        byte[] data = new byte[jsonData.length + 3];
-        data[0] = (byte) form.getType().ordinal();
-        data[1] = (byte) (formId >> 8 & 0xFF);
-        data[2] = (byte) (formId & 0xFF);
-        System.arraycopy(jsonData, 0, data, 3, jsonData.length);
-        return data;
+        ByteBuf data = ByteBufAllocator.DEFAULT.directBuffer(jsonData.readableBytes() / 2 + 3);
+        try {
+            data.writeByte(formType | COMPRESSED_BIT);
+            data.writeShort(formId);
+            FormCompression.compress(jsonData, data);
+
+            if (data.readableBytes() >= uncompressedLength) {
+                return null;
+            }
+            return ByteBufUtil.getBytes(data);
+        } finally {
+            data.release();
+        }
+    }
+
+    private void handleCapabilities(UUID player, ByteBuf data) {
+        int flags = data.readableBytes() >= 3 ? data.getByte(data.readerIndex() + 2) : 0;
+        if ((flags & COMPRESSION_CAPABILITY) != 0) {
+            compressionSupported.add(player);
+        } else {
+            compressionSupported.remove(player);
+        }
     }
 
-    protected boolean callResponseConsumer(byte[] data) {
-        Form storedForm = storedForms.remove(getFormId(data));
-        if (storedForm != null) {
-            String responseData = new String(data, 2, data.length - 2, Charsets.UTF_8);
-            storedForm.getResponseHandler().accept(responseData);
+    protected boolean callResponseConsumer(UUID player, ByteBuf data) {
+        PendingForm pendingForm = pendingForms.remove(player, getFormId(data));
+        if (pendingForm != null) {
+            String responseData =
+                    data.toString(data.readerIndex() + 2, data.readableBytes() - 2, Charsets.UTF_8);
+            for (Form form : pendingForm.getForms()) {
+                form.getResponseHandler().accept(responseData);
+            }
             return true;
         }
         return false;
     }
 
-    protected short getFormId(byte[] data) {
-        return (short) ((data[0] & 0xFF) << 8 | data[1] & 0xFF);
+    /**
+     * Removes the forms that are still waiting on a response of the given player and the
+     * capabilities of the player, e.g. when the player disconnected. The response handlers of these
+     * forms are called with null, like the player closed the forms.
+     */
+    public void removePlayerForms(UUID player) {
+        compressionSupported.remove(player);
+        FormQueue queue;
+        synchronized (queuedForms) {
+            queue = queuedForms.remove(player);
+        }
+        if (queue != null) {
+            for (QueuedForm queuedForm : queue.forms) {
+                timeout(queuedForm.form);
+            }
+        }
+        timeout(pendingForms.removePlayer(player));
+    }
+
+    private void timeout(List<PendingForm> timedOut) {
+        for (PendingForm pendingForm : timedOut) {
+            timeout(pendingForm);
+        }
     }
 
-    protected short getNextFormId() {
-        // signed bit is used to check if the form is from a proxy or a server
-        return (short) nextFormId.getAndUpdate(
-                (number) -> number == Short.MAX_VALUE ? 0 : number + 1);
+    private void timeout(PendingForm pendingForm) {
+        for (Form form : pendingForm.getForms()) {
+            timeout(form);
+        }
+    }
+
+    /**
+     * Calls the response handler of a form that won't get a response, e.g. because it expired or
+     * because it couldn't be sent. The handler is called with null as response, which is handled
+     * like a form that has been closed.
+     */
+    private void timeout(Form form) {
+        executor.execute(() -> {
+            try {
+                form.getResponseHandler().accept(null);
+            } catch (Exception exception) {
+                logger.error("Error while handling a form that won't get a response", exception);
+            }
+        });
+    }
+
+    protected short getFormId(ByteBuf data) {
+        return data.getShort(data.readerIndex());
+    }
+
+    /**
+     * The forms of a player that haven't been sent yet, in the order they have been queued.
+     * Guarded by the lock of {@link #queuedForms}.
+     */
+    private static final class FormQueue {
+        private final List<QueuedForm> forms = new ArrayList<>(1);
+
+        /**
+         * Adds the form to the queue.
+         *
+         * @return the form that has been replaced by the given form, or null if no form has been
+         * replaced
+         */
+        private Form add(Form form, String replaceKey) {
+            for (int i = 0; i < forms.size(); i++) {
+                QueuedForm queuedForm = forms.get(i);
+                if (queuedForm.form == form) {
+                    return null;
+                }
+                if (replaceKey != null && replaceKey.equals(queuedForm.replaceKey)) {
+                    // the newest form is sent after the forms that were queued before it
+                    forms.remove(i);
+                    forms.add(new QueuedForm(form, replaceKey));
+                    return queuedForm.form;
+                }
+            }
+            forms.add(new QueuedForm(form, replaceKey));
+            return null;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class QueuedForm {
+        private final Form form;
+        private final String replaceKey;
     }
 }
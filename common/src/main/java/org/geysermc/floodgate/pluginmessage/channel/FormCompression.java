@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.pluginmessage.channel;
+
+import io.netty.buffer.ByteBuf;
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the json data of forms using deflate with a preset dictionary that contains the parts
+ * that most Cumulus forms have in common. The dictionary is part of the form channel protocol, so
+ * the client has to inflate the data using the exact same dictionary.
+ */
+public final class FormCompression {
+    /**
+     * Forms with less json data than this aren't worth compressing.
+     */
+    public static final int MIN_COMPRESS_SIZE = 256;
+
+    // deflate prefers matches close to the end of the dictionary, so common parts go last
+    private static final byte[] DICTIONARY = (
+            "{\"type\":\"modal\",\"title\":\"\",\"content\":\"\",\"button1\":\"\"," +
+            "\"button2\":\"\"}" +
+            "{\"type\":\"custom_form\",\"title\":\"\",\"icon\":{\"type\":\"path\",\"data\":\"" +
+            "textures/ui/\"},\"content\":[{\"type\":\"label\",\"text\":\"\"}," +
+            "{\"type\":\"input\",\"text\":\"\",\"placeholder\":\"\",\"default\":\"\"}," +
+            "{\"type\":\"toggle\",\"text\":\"\",\"default\":false}," +
+            "{\"type\":\"slider\",\"text\":\"\",\"min\":0.0,\"max\":100.0,\"step\":1.0," +
+            "\"default\":0.0},{\"type\":\"step_slider\",\"text\":\"\",\"steps\":[\"\"]," +
+            "\"default\":0},{\"type\":\"dropdown\",\"text\":\"\",\"options\":[\"\",\"\"]," +
+            "\"default\":0}]}{\"type\":\"form\",\"title\":\"\",\"content\":\"\",\"buttons\":[" +
+            "{\"text\":\"\",\"image\":{\"type\":\"path\",\"data\":\"textures/\"}}," +
+            "{\"text\":\"\",\"image\":{\"type\":\"url\",\"data\":\"https://\"}}," +
+            "{\"text\":\"\",\"image\":null},{\"text\":\"\"}]}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    // creating a deflater is expensive, so a couple of them are reused
+    private static final int MAX_POOLED_DEFLATERS = 8;
+    private static final BlockingQueue<Deflater> DEFLATERS =
+            new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    private static final int CHUNK_SIZE = 512;
+
+    // Java 8 is our target, the deflater can only work on (direct) ByteBuffers since Java 11
+    private static final MethodHandle SET_INPUT;
+    private static final MethodHandle DEFLATE;
+
+    static {
+        MethodHandle setInput = null;
+        MethodHandle deflate = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            setInput = lookup.findVirtual(Deflater.class, "setInput",
+                    MethodType.methodType(void.class, ByteBuffer.class));
+            deflate = lookup.findVirtual(Deflater.class, "deflate",
+                    MethodType.methodType(int.class, ByteBuffer.class));
+        } catch (NoSuchMethodException | IllegalAccessException ignored) {
+            setInput = null;
+            deflate = null;
+        }
+        SET_INPUT = setInput;
+        DEFLATE = deflate;
+    }
+
+    private FormCompression() {
+    }
+
+    /**
+     * Compresses the readable bytes of the given buffer and writes them to the output buffer. When
+     * both buffers are direct and the JVM supports it, the data is compressed without copying it
+     * to the heap.
+     *
+     * @param jsonData the UTF-8 encoded json data of the form, this buffer isn't modified
+     * @param out      the buffer to write the compressed data to
+     */
+    public static void compress(ByteBuf jsonData, ByteBuf out) {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        }
+
+        try {
+            deflater.setDictionary(DICTIONARY);
+            if (SET_INPUT != null && jsonData.nioBufferCount() == 1 && out.isDirect()) {
+                compressDirect(deflater, jsonData, out);
+            } else {
+                compressHeap(deflater, jsonData, out);
+            }
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static void compressDirect(Deflater deflater, ByteBuf jsonData, ByteBuf out) {
+        try {
+            SET_INPUT.invokeExact(deflater, jsonData.nioBuffer());
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                out.ensureWritable(CHUNK_SIZE);
+                ByteBuffer target = out.nioBuffer(out.writerIndex(), out.writableBytes());
+                int written = (int) DEFLATE.invokeExact(deflater, target);
+                out.writerIndex(out.writerIndex() + written);
+            }
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Failed to compress form data", throwable);
+        }
+    }
+
+    private static void compressHeap(Deflater deflater, ByteBuf jsonData, ByteBuf out) {
+        if (jsonData.hasArray()) {
+            deflater.setInput(jsonData.array(),
+                    jsonData.arrayOffset() + jsonData.readerIndex(), jsonData.readableBytes());
+        } else {
+            byte[] input = new byte[jsonData.readableBytes()];
+            jsonData.getBytes(jsonData.readerIndex(), input);
+            deflater.setInput(input);
+        }
+        deflater.finish();
+
+        byte[] chunk = out.hasArray() ? null : new byte[CHUNK_SIZE];
+        while (!deflater.finished()) {
+            out.ensureWritable(CHUNK_SIZE);
+            if (chunk == null) {
+                int written = deflater.deflate(
+                        out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                out.writerIndex(out.writerIndex() + written);
+            } else {
+                int written = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, written);
+            }
+        }
+    }
+
+    /**
+     * Decompresses the json data that has been compressed by {@link #compress(ByteBuf, ByteBuf)}.
+     *
+     * @return the UTF-8 encoded json data of the form
+     * @throws DataFormatException if the data isn't valid compressed form data
+     */
+    public static byte[] decompress(byte[] data, int offset, int length)
+            throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, length);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (inflater.needsInput()) {
+                        throw new DataFormatException("Compressed form data is incomplete");
+                    }
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+package org.geysermc.floodgate.pluginmessage.channel;
+
+import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
+import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.geysermc.cumulus.Form;
+
+/**
+ * Keeps track of the forms that have been sent but haven't been answered yet. Every player has
+ * their own form id sequence, so form ids only have to be unique per player. Every form also has a
+ * deadline, so that forms of players who left or who ignore the form don't stay around forever.<br>
+ * The sequence of a player is kept until {@link #removePlayer(UUID)} is called, because a form
+ * that expired might still be open on the client. Restarting the sequence would give the next
+ * form the id of that form, and a late response would be handled by the wrong form.
+ */
+final class PendingFormStore {
+    /**
+     * The highest form id a player can have. The sign bit of the form id is used to tell whether
+     * the form has been sent by the proxy or by the server, and the highest id is reserved for the
+     * capabilities of the client.
+     */
+    private static final int MAX_FORM_ID = FormChannel.CAPABILITIES_ID - 1;
+
+    private final Map<UUID, PlayerForms> playerForms = new HashMap<>();
+    private final int maxFormsPerPlayer;
+
+    PendingFormStore(int maxFormsPerPlayer) {
+        this.maxFormsPerPlayer = maxFormsPerPlayer;
+    }
+
+    /**
+     * Adds a form that has been sent to the given player, using the next form id of the player
+     * that isn't used by one of their other pending forms.
+     *
+     * @param owner     the player the form is sent to
+     * @param form      the form that is sent
+     * @param jsonData  the json data of the form
+     * @param deadline  the time in millis when the form expires
+     * @param formIdBit the bit to add to the form id, used for proxy forms
+     * @param onRemoved called with the oldest form of the player if the player has too many
+     *                  pending forms after adding the new form
+     * @return the form that has been added, including its form id
+     */
+    synchronized PendingForm add(
+            UUID owner,
+            Form form,
+            String jsonData,
+            long deadline,
+            int formIdBit,
+            Consumer<PendingForm> onRemoved) {
+
+        PlayerForms forms = playerForms.computeIfAbsent(owner, uuid -> new PlayerForms());
+
+        short formId;
+        do {
+            formId = (short) (forms.nextFormId | formIdBit);
+            if (forms.nextFormId == MAX_FORM_ID) {
+                forms.nextFormId = 0;
+            } else {
+                forms.nextFormId++;
+            }
+            // there are never more pending forms than form ids, so this will find a free id
+        } while (forms.byId.containsKey(formId));
+
+        PendingForm pendingForm = new PendingForm(owner, formId, jsonData, deadline);
+        pendingForm.forms.add(form);
+        forms.byId.put(formId, pendingForm);
+        forms.byAge.addLast(pendingForm);
+
+        if (forms.byAge.size() > maxFormsPerPlayer) {
+            PendingForm oldest = forms.byAge.pollFirst();
+            forms.byId.remove(oldest.getFormId());
+            onRemoved.accept(oldest);
+        }
+        return pendingForm;
+    }
+
+    /**
+     * Attaches the form to the newest pending form of the player if both forms are identical, so
+     * that the form doesn't have to be sent again. The response handler of the form will be called
+     * when the pending form gets a response.
+     *
+     * @return true if the form has been attached to a pending form
+     */
+    synchronized boolean merge(UUID owner, Form form, String jsonData) {
+        PlayerForms forms = playerForms.get(owner);
+        if (forms == null || forms.byAge.isEmpty()) {
+            return false;
+        }
+
+        PendingForm newest = forms.byAge.peekLast();
+        Form newestForm = newest.forms.get(0);
+        if (newestForm.getType() != form.getType() || !newest.jsonData.equals(jsonData)) {
+            return false;
+        }
+
+        newest.forms.add(form);
+        return true;
+    }
+
+    /**
+     * Removes the form with the given form id of the given player.
+     *
+     * @return the removed form or null if the player doesn't have a form with the given id
+     */
+    synchronized PendingForm remove(UUID owner, short formId) {
+        PlayerForms forms = playerForms.get(owner);
+        if (forms == null) {
+            return null;
+        }
+
+        PendingForm pendingForm = forms.byId.remove(formId);
+        if (pendingForm != null) {
+            forms.byAge.remove(pendingForm);
+        }
+        return pendingForm;
+    }
+
+    /**
+     * Removes all the forms and the form id sequence of the given player. This should only be
+     * called when the player left.
+     *
+     * @return the forms that have been removed
+     */
+    synchronized List<PendingForm> removePlayer(UUID owner) {
+        PlayerForms forms = playerForms.remove(owner);
+        if (forms == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(forms.byAge);
+    }
+
+    /**
+     * Removes all the forms that have passed their deadline.
+     *
+     * @return the forms that have been removed
+     */
+    synchronized List<PendingForm> removeExpired(long now) {
+        List<PendingForm> expired = new ArrayList<>();
+
+        for (PlayerForms forms : playerForms.values()) {
+            // every form has the same timeout, so the oldest form expires first
+            while (!forms.byAge.isEmpty() && forms.byAge.peekFirst().getDeadline() <= now) {
+                PendingForm pendingForm = forms.byAge.pollFirst();
+                forms.byId.remove(pendingForm.getFormId());
+                expired.add(pendingForm);
+            }
+        }
+        return expired;
+    }
+
+    private static final class PlayerForms {
+        private final Short2ObjectMap<PendingForm> byId = new Short2ObjectOpenHashMap<>();
+        // ordered from the oldest to the newest form
+        private final Deque<PendingForm> byAge = new ArrayDeque<>();
+        private int nextFormId;
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static final class PendingForm {
+        private final UUID owner;
+        private final short formId;
+        private final String jsonData;
+        private final long deadline;
+        // the forms waiting on the response, more than one when identical forms have been merged.
+        // This should only be used by others after the form has been removed from the store
+        private final List<Form> forms = new ArrayList<>(1);
+    }
+}
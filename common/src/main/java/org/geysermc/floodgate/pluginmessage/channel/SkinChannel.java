@@ -27,6 +27,7 @@ package org.geysermc.floodgate.pluginmessage.channel;
 
 import com.google.gson.JsonObject;
 import com.google.inject.Inject;
+import io.netty.buffer.ByteBuf;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import org.geysermc.floodgate.api.FloodgateApi;
@@ -35,6 +36,7 @@ import org.geysermc.floodgate.api.player.PropertyKey;
 import org.geysermc.floodgate.config.FloodgateConfig;
 import org.geysermc.floodgate.config.ProxyFloodgateConfig;
 import org.geysermc.floodgate.pluginmessage.PluginMessageChannel;
+import org.geysermc.floodgate.pluginmessage.PluginMessageContext;
 import org.geysermc.floodgate.skin.SkinApplier;
 
 public class SkinChannel implements PluginMessageChannel {
@@ -48,18 +50,13 @@ public class SkinChannel implements PluginMessageChannel {
     }
 
     @Override
-    public Result handleProxyCall(
-            byte[] data,
-            UUID targetUuid,
-            String targetUsername,
-            Identity targetIdentity,
-            UUID sourceUuid,
-            String sourceUsername,
-            Identity sourceIdentity) {
+    public Result handleProxyCall(ByteBuf data, PluginMessageContext context) {
+        Identity sourceIdentity = context.getSourceIdentity();
 
         // we can only get skins from Geyser (client)
         if (sourceIdentity == Identity.PLAYER) {
-            Result result = handleServerCall(data, targetUuid, targetUsername);
+            Result result =
+                    handleServerCall(data, context.getSourceUuid(), context.getSourceUsername());
             // aka translate 'handled' into 'forward' when send-floodgate-data is enabled
             if (!result.isAllowed() && result.getReason() == null) {
                 if (config.isProxy() && ((ProxyFloodgateConfig) config).isSendFloodgateData()) {
@@ -77,22 +74,23 @@ public class SkinChannel implements PluginMessageChannel {
     }
 
     @Override
-    public Result handleServerCall(byte[] data, UUID targetUuid, String targetUsername) {
+    public Result handleServerCall(ByteBuf data, UUID targetUuid, String targetUsername) {
         FloodgatePlayer floodgatePlayer = api.getPlayer(targetUuid);
         if (floodgatePlayer == null) {
             return Result.kick("Player sent skins data for a non-Floodgate player");
         }
 
-        String message = new String(data, StandardCharsets.UTF_8);
-
-        String[] split = message.split("\0");
-        // value and signature
-        if (split.length != 2) {
+        // value and signature, separated by a null character
+        int start = data.readerIndex();
+        int end = data.writerIndex();
+        int separator = data.indexOf(start, end, (byte) 0);
+        if (separator == -1 || data.indexOf(separator + 1, end, (byte) 0) != -1) {
             return Result.kick("Got invalid skin data");
         }
 
-        String value = split[0];
-        String signature = split[1];
+        String value = data.toString(start, separator - start, StandardCharsets.UTF_8);
+        String signature =
+                data.toString(separator + 1, end - separator - 1, StandardCharsets.UTF_8);
 
         JsonObject result = new JsonObject();
         result.addProperty("value", value);
@@ -38,4 +38,8 @@ public final class Constants {
     public static final String TIMESTAMP_DENIED_MESSAGE =
             "Something isn't right with this data." +
             " Try logging in again or contact a server administrator if the issue persists.";
+
+    public static final String LINK_FETCH_FAILED_MESSAGE =
+            "Failed to check if your account is linked." +
+            " Please try again in a moment.";
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+package org.geysermc.floodgate.util;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * The executors shared by everything in Floodgate. Blocking work (like database and web
+ * requests) should run on the {@link #getBlockingExecutor() blocking executor}, which uses
+ * virtual threads when the JVM supports them and a bounded pool that grows on demand otherwise.
+ * Delayed and repeating tasks should use the {@link #getScheduler() scheduler}, those tasks
+ * shouldn't block.
+ */
+public final class FloodgateExecutors {
+    @Getter private final ExecutorService blockingExecutor;
+    @Getter private final ScheduledExecutorService scheduler;
+    @Getter private final boolean virtualThreads;
+
+    /**
+     * @param maxBlockingThreads the maximum amount of threads of the blocking executor when
+     *                           virtual threads aren't available
+     */
+    public FloodgateExecutors(int maxBlockingThreads) {
+        ExecutorService virtualExecutor = createVirtualThreadExecutor();
+        virtualThreads = virtualExecutor != null;
+
+        if (virtualThreads) {
+            blockingExecutor = virtualExecutor;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    maxBlockingThreads, maxBlockingThreads,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    threadFactory("floodgate-blocking"));
+            // threads are only created when needed and are removed again when they're idle
+            pool.allowCoreThreadTimeOut(true);
+            blockingExecutor = pool;
+        }
+
+        ScheduledThreadPoolExecutor scheduledPool =
+                new ScheduledThreadPoolExecutor(1, threadFactory("floodgate-scheduler"));
+        // delayed tasks (e.g. sending a batch of link lookups) still run after a shutdown, so
+        // that the futures waiting on them complete. Repeating tasks are stopped
+        scheduledPool.setExecuteExistingDelayedTasksAfterShutdownPolicy(true);
+        scheduledPool.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        scheduler = scheduledPool;
+    }
+
+    /**
+     * Creates a thread factory for executors that aren't shared, so that their threads can be
+     * recognized and don't prevent the JVM from shutting down.
+     *
+     * @param poolName the name of the pool, used as prefix of the thread names
+     * @return a thread factory that creates named daemon threads
+     */
+    public static ThreadFactory threadFactory(String poolName) {
+        return new DefaultThreadFactory(poolName, true);
+    }
+
+    /**
+     * Java 8 is our target, so virtual threads (Java 21) can only be created using reflection.
+     *
+     * @return an executor that creates a named virtual thread for every task or null if virtual
+     * threads aren't available
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "floodgate-virtual-", 0L);
+            ThreadFactory factory =
+                    (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            Method newExecutor =
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (Exception ignored) {
+            // either an older Java version or virtual threads are still a preview feature
+            return null;
+        }
+    }
+
+    /**
+     * Returns the amount of tasks waiting for a free thread of the blocking executor. This is
+     * always 0 when virtual threads are used, because every task gets its own thread.
+     */
+    public int getQueuedTasks() {
+        if (blockingExecutor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) blockingExecutor).getQueue().size();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the amount of threads of the blocking executor that are running a task, or -1 when
+     * virtual threads are used.
+     */
+    public int getActiveThreads() {
+        if (blockingExecutor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) blockingExecutor).getActiveCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Stops accepting new tasks and waits a short while for the pending and running tasks to
+     * complete. The scheduler is shut down first, since its delayed tasks can still hand work to
+     * the blocking executor.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        awaitTermination(scheduler, 1);
+
+        blockingExecutor.shutdown();
+        awaitTermination(blockingExecutor, 5);
+    }
+
+    private static void awaitTermination(ExecutorService executor, long timeoutSeconds) {
+        try {
+            if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -27,20 +27,34 @@ package org.geysermc.floodgate.util;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 @SuppressWarnings("all")
 public class HttpUtils {
-    private static final ExecutorService EXECUTOR_SERVICE = Executors.newSingleThreadExecutor();
+    /**
+     * The default amount of requests that can run at the same time, see {@link
+     * #setMaxConcurrentRequests(int)}.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+    private static final int MAX_QUEUED_REQUESTS = 512;
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 5000;
+
+    private static final ThreadPoolExecutor EXECUTOR_SERVICE;
 
     private static final Gson GSON = new Gson();
     private static final String USER_AGENT = "GeyserMC/Floodgate";
@@ -48,13 +62,62 @@ public class HttpUtils {
     private static final String BOUNDARY = "******";
     private static final String END = "\r\n";
 
-    public static CompletableFuture<HttpResponse> asyncGet(String urlString) {
-        return CompletableFuture.supplyAsync(() -> {
-            return get(urlString);
-        }, EXECUTOR_SERVICE);
+    static {
+        EXECUTOR_SERVICE = new ThreadPoolExecutor(
+                DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_CONCURRENT_REQUESTS,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_REQUESTS),
+                new DefaultThreadFactory("floodgate-http", true));
+        EXECUTOR_SERVICE.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Changes the amount of requests that can run at the same time. Threads are only created when
+     * needed, so a high limit doesn't cost anything while it isn't used.
+     *
+     * @param maxConcurrentRequests the maximum amount of requests running at the same time
+     */
+    public static synchronized void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        int threads = Math.max(1, maxConcurrentRequests);
+        // the core size can't be larger than the maximum size, so the order matters
+        if (threads > EXECUTOR_SERVICE.getMaximumPoolSize()) {
+            EXECUTOR_SERVICE.setMaximumPoolSize(threads);
+            EXECUTOR_SERVICE.setCorePoolSize(threads);
+        } else {
+            EXECUTOR_SERVICE.setCorePoolSize(threads);
+            EXECUTOR_SERVICE.setMaximumPoolSize(threads);
+        }
+    }
+
+    public static CompletableFuture<HttpResponse<JsonObject>> asyncGet(String urlString) {
+        return asyncGet(urlString, JsonObject.class);
+    }
+
+    /**
+     * Sends a GET request without blocking the calling thread. The response body is parsed
+     * directly from the stream into the given type.
+     *
+     * @param urlString    the url to send the request to
+     * @param responseType the type the json response should be parsed into
+     * @return a future that completes with the response, or exceptionally when the request
+     * failed, timed out or when too many requests are queued
+     */
+    public static <T> CompletableFuture<HttpResponse<T>> asyncGet(
+            String urlString,
+            Class<T> responseType) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> get(urlString, responseType), EXECUTOR_SERVICE);
+        } catch (RejectedExecutionException exception) {
+            return Utils.failedFuture(exception);
+        }
+    }
+
+    public static HttpResponse<JsonObject> get(String urlString) {
+        return get(urlString, JsonObject.class);
     }
 
-    public static HttpResponse get(String urlString) {
+    public static <T> HttpResponse<T> get(String urlString, Class<T> responseType) {
         HttpURLConnection connection;
 
         try {
@@ -66,50 +129,61 @@ public class HttpUtils {
 
         try {
             connection.setRequestMethod("GET");
-            connection.setUseCaches(false);
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
             connection.setRequestProperty("User-Agent", USER_AGENT);
-            connection.setRequestProperty("ContentType", "application/json");
+            connection.setRequestProperty("Accept", "application/json");
         } catch (Exception exception) {
             throw new RuntimeException("Failed to create request", exception);
         }
 
-        return readResponse(connection);
+        return readResponse(connection, responseType);
     }
 
-    private static HttpResponse readResponse(HttpURLConnection connection) {
-        InputStream stream = null;
+    private static <T> HttpResponse<T> readResponse(
+            HttpURLConnection connection,
+            Class<T> responseType) {
+        InputStream stream;
+        int responseCode;
         try {
-            stream = connection.getInputStream();
-        } catch (Exception exception) {
-            try {
-                stream = connection.getErrorStream();
-            } catch (Exception exception1) {
-                throw new RuntimeException("Both the input and the error stream failed?!");
-            }
+            responseCode = connection.getResponseCode();
+            stream = responseCode >= 400
+                    ? connection.getErrorStream()
+                    : connection.getInputStream();
+        } catch (IOException exception) {
+            // the connection is unusable, so don't return it to the keep-alive cache
+            connection.disconnect();
+            throw new RuntimeException("Failed to send request", exception);
         }
 
-        InputStreamReader streamReader = new InputStreamReader(stream);
+        if (stream == null) {
+            return new HttpResponse<>(responseCode, null);
+        }
 
-        try {
-            int responseCode = connection.getResponseCode();
+        try (InputStreamReader streamReader =
+                     new InputStreamReader(stream, StandardCharsets.UTF_8)) {
 
-            JsonObject response = GSON.fromJson(streamReader, JsonObject.class);
+            T response = GSON.fromJson(streamReader, responseType);
 
-            return new HttpResponse(responseCode, response);
+            // the connection can only be reused when the whole body has been consumed
+            drain(stream);
+            return new HttpResponse<>(responseCode, response);
         } catch (Exception exception) {
             throw new RuntimeException("Failed to read response", exception);
-        } finally {
-            try {
-                streamReader.close();
-            } catch (Exception ignored) {
-            }
+        }
+    }
+
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[256];
+        //noinspection StatementWithEmptyBody
+        while (stream.read(buffer) != -1) {
         }
     }
 
     @Getter
     @AllArgsConstructor(access = AccessLevel.PRIVATE)
-    public static final class HttpResponse {
+    public static final class HttpResponse<T> {
         private final int httpCode;
-        private final JsonObject response;
+        private final T response;
     }
 }
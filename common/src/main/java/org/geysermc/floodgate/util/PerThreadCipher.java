@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.util;
+
+import com.google.common.base.Preconditions;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import lombok.RequiredArgsConstructor;
+import org.geysermc.floodgate.crypto.AesCipher;
+import org.geysermc.floodgate.crypto.FloodgateCipher;
+import org.geysermc.floodgate.crypto.Topping;
+
+/**
+ * An AES-GCM FloodgateCipher that produces the same format as {@link AesCipher}, but gives every
+ * thread (e.g. every Netty event loop) its own {@link Cipher} instance. {@link AesCipher} looks up
+ * and initializes a new Cipher for every call, this class only does that once per thread and key.
+ * After that only the IV changes between calls, and the IV buffer of the thread is reused as well.
+ */
+@RequiredArgsConstructor
+public final class PerThreadCipher implements FloodgateCipher {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte SPLITTER = 0x21;
+
+    private final FastThreadLocal<ThreadCipher> threadCipher = new FastThreadLocal<>();
+    private final SecureRandom secureRandom = new SecureRandom();
+    @Nullable private final Topping topping;
+    private volatile SecretKey secretKey;
+
+    @Override
+    public void init(Key key) {
+        Preconditions.checkArgument(
+                key instanceof SecretKey,
+                "Key has to be an instance of SecretKey"
+        );
+        SecretKey secretKey = (SecretKey) key;
+
+        // initialize a cipher once, so that an invalid key fails here and not on the first login
+        try {
+            ThreadCipher cipher = new ThreadCipher(secretKey);
+            secureRandom.nextBytes(cipher.iv);
+            cipher.init(Cipher.ENCRYPT_MODE, cipher.iv, 0, cipher.iv.length);
+            threadCipher.set(cipher);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalArgumentException("Cannot initialize the cipher with the given key",
+                    exception);
+        }
+        this.secretKey = secretKey;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] data) throws Exception {
+        ThreadCipher cipher = cipher();
+
+        byte[] iv = cipher.iv;
+        secureRandom.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, iv, 0, iv.length);
+        byte[] cipherText = cipher.cipher.doFinal(data);
+
+        if (topping != null) {
+            iv = topping.encode(iv);
+            cipherText = topping.encode(cipherText);
+        }
+
+        return ByteBuffer.allocate(HEADER_LENGTH + iv.length + cipherText.length + 1)
+                .put(IDENTIFIER).put(VERSION)
+                .put(iv).put(SPLITTER)
+                .put(cipherText)
+                .array();
+    }
+
+    @Override
+    public byte[] decrypt(byte[] cipherTextWithIv) throws Exception {
+        checkHeader(cipherTextWithIv);
+        ThreadCipher cipher = cipher();
+
+        if (topping == null) {
+            // the iv has a fixed length, so we can use the data as-is
+            int cipherTextStart = HEADER_LENGTH + AesCipher.IV_LENGTH + 1;
+            if (cipherTextWithIv.length < cipherTextStart) {
+                throw new IllegalArgumentException("The encrypted data is too short");
+            }
+            cipher.init(Cipher.DECRYPT_MODE, cipherTextWithIv, HEADER_LENGTH, AesCipher.IV_LENGTH);
+            return cipher.cipher.doFinal(cipherTextWithIv, cipherTextStart,
+                    cipherTextWithIv.length - cipherTextStart);
+        }
+
+        int splitterIndex = -1;
+        for (int i = HEADER_LENGTH; i < cipherTextWithIv.length; i++) {
+            if (cipherTextWithIv[i] == SPLITTER) {
+                splitterIndex = i;
+                break;
+            }
+        }
+        if (splitterIndex == -1) {
+            throw new IllegalArgumentException("The encrypted data doesn't contain an iv");
+        }
+
+        byte[] iv = topping.decode(
+                Arrays.copyOfRange(cipherTextWithIv, HEADER_LENGTH, splitterIndex));
+        byte[] cipherText = topping.decode(
+                Arrays.copyOfRange(cipherTextWithIv, splitterIndex + 1, cipherTextWithIv.length));
+
+        cipher.init(Cipher.DECRYPT_MODE, iv, 0, iv.length);
+        return cipher.cipher.doFinal(cipherText);
+    }
+
+    private ThreadCipher cipher() throws GeneralSecurityException {
+        SecretKey currentKey = secretKey;
+        if (currentKey == null) {
+            throw new IllegalStateException("The cipher hasn't been initialized yet");
+        }
+
+        ThreadCipher current = threadCipher.get();
+        if (current == null || current.key != currentKey) {
+            current = new ThreadCipher(currentKey);
+            threadCipher.set(current);
+        }
+        return current;
+    }
+
+    private static final class ThreadCipher {
+        private final Cipher cipher;
+        private final SecretKey key;
+        private final byte[] iv = new byte[AesCipher.IV_LENGTH];
+
+        private ThreadCipher(SecretKey key) throws GeneralSecurityException {
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+            this.key = key;
+        }
+
+        private void init(int mode, byte[] iv, int offset, int length)
+                throws GeneralSecurityException {
+            // the key stays the same, so the provider can reuse its expanded key
+            cipher.init(mode, key, new GCMParameterSpec(AesCipher.CIPHER_TAG_SIZE, iv, offset,
+                    length));
+        }
+    }
+}
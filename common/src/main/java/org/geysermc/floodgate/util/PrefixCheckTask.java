@@ -25,22 +25,22 @@
 
 package org.geysermc.floodgate.util;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.config.FloodgateConfig;
 
 public final class PrefixCheckTask {
-    public static void checkAndExecuteDelayed(FloodgateConfig config, FloodgateLogger logger) {
+    public static void checkAndExecuteDelayed(
+            FloodgateConfig config,
+            FloodgateLogger logger,
+            ScheduledExecutorService scheduler) {
         if (Utils.isUniquePrefix(config.getUsernamePrefix())) {
             return;
         }
 
-        new Thread(() -> {
-            // normally proxies don't have a lot of plugins, so proxies don't need to sleep as long
-            try {
-                Thread.sleep(config.isProxy() ? 1000 : 2000);
-            } catch (InterruptedException ignored) {
-            }
-
+        // normally proxies don't have a lot of plugins, so proxies don't need to wait as long
+        scheduler.schedule(() -> {
             if (config.getUsernamePrefix().isEmpty()) {
                 logger.warn("\n" +
                         "**********************************\n" +
@@ -60,6 +60,6 @@ public final class PrefixCheckTask {
                     "**********************************",
                     config.getUsernamePrefix(), config.getUsernamePrefix(),
                     config.getUsernamePrefix(), config.getUsernamePrefix());
-        }).start();
+        }, config.isProxy() ? 1000 : 2000, TimeUnit.MILLISECONDS);
     }
 }
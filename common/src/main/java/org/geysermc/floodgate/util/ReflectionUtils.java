@@ -25,16 +25,22 @@
 
 package org.geysermc.floodgate.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import javax.annotation.Nullable;
 import lombok.Getter;
 import lombok.Setter;
 
 public final class ReflectionUtils {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
     /**
      * The package name that is shared between all the {@link #getPrefixedClass(String)} calls so
      * that the className will be a lot shorter. Example net.minecraft.server.v1_8R3.PacketHandshakingInSetProtocol
@@ -431,6 +437,167 @@ public final class ReflectionUtils {
         return invoke(null, getMethod(clazz, method));
     }
 
+    /**
+     * Get a MethodHandle that gets the value of the given field. Unlike {@link Field#get(Object)}
+     * the access checks are only done once, which makes the handle a lot faster when it's stored
+     * in a static final field. The returned handle has the type {@code (Object)Object} and can be
+     * used with {@link #getValue(Object, MethodHandle)}. The instance is ignored for static fields.
+     *
+     * @param field the field to create a getter of
+     * @return the getter when succeeded, otherwise null
+     */
+    @Nullable
+    public static MethodHandle getGetter(@Nullable Field field) {
+        if (field == null) {
+            return null;
+        }
+        try {
+            MethodHandle getter = LOOKUP.unreflectGetter(makeAccessible(field));
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return getter.asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a MethodHandle that sets the value of the given field. The returned handle has the type
+     * {@code (Object,Object)void} and can be used with {@link #setValue(Object, MethodHandle,
+     * Object)}. The instance is ignored for static fields.
+     *
+     * @param field the field to create a setter of
+     * @return the setter when succeeded, otherwise null
+     * @see #getGetter(Field)
+     */
+    @Nullable
+    public static MethodHandle getSetter(@Nullable Field field) {
+        if (field == null) {
+            return null;
+        }
+        try {
+            MethodHandle setter = LOOKUP.unreflectSetter(makeAccessible(field));
+            if (Modifier.isStatic(field.getModifiers())) {
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+            return setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get a MethodHandle that invokes the given method. The returned handle takes the instance
+     * followed by the method arguments, all as Object, and returns an Object (null for void
+     * methods). Methods without arguments can be used with {@link #invoke(Object, MethodHandle)}.
+     * The instance is ignored for static methods.
+     *
+     * @param method the method to create a handle of
+     * @return the handle when succeeded, otherwise null
+     * @see #getGetter(Field)
+     */
+    @Nullable
+    public static MethodHandle getMethodHandle(@Nullable Method method) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflect(makeAccessible(method));
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(MethodType.genericMethodType(method.getParameterCount() + 1));
+        } catch (IllegalAccessException exception) {
+            exception.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get the value of a field by using a getter created by {@link #getGetter(Field)}.<br> This
+     * method will return null instead of throwing an exception, but it'll log the stacktrace to the
+     * console.
+     *
+     * @param instance the instance to get the value from
+     * @param getter   the getter of the field
+     * @return the value when succeeded, otherwise null
+     */
+    @Nullable
+    public static Object getValue(Object instance, MethodHandle getter) {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Get the value of a field by using a getter created by {@link #getGetter(Field)} and cast it
+     * to <T>.
+     *
+     * @param instance the instance to get the value from
+     * @param getter   the getter of the field
+     * @param <T>      the type to cast the value to
+     * @return the casted value when succeeded, otherwise null
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public static <T> T getCastedValue(Object instance, MethodHandle getter) {
+        return (T) getValue(instance, getter);
+    }
+
+    /**
+     * Set the value of a field by using a setter created by {@link #getSetter(Field)}.<br> This
+     * method doesn't throw an exception when failed, but it'll log the error to the console.
+     *
+     * @param instance the instance to set the value to
+     * @param setter   the setter of the field
+     * @param value    the value to set
+     */
+    public static void setValue(Object instance, MethodHandle setter, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+        }
+    }
+
+    /**
+     * Invoke a method without arguments by using a handle created by {@link
+     * #getMethodHandle(Method)}.
+     *
+     * @param instance the instance to invoke the method on
+     * @param method   the handle of the method to invoke
+     * @return the value got from invoking the method, or null when failed to invoke
+     */
+    @Nullable
+    public static Object invoke(Object instance, MethodHandle method) {
+        try {
+            return (Object) method.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Invoke a method without arguments by using a handle created by {@link
+     * #getMethodHandle(Method)} and cast the value.
+     *
+     * @param instance the instance to invoke the method on
+     * @param method   the handle of the method to invoke
+     * @return the casted value got from invoking the method, or null when failed to invoke
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public static <T> T castedInvoke(Object instance, MethodHandle method) {
+        return (T) invoke(instance, method);
+    }
+
     /**
      * Make the object accessible if it isn't accessible yet
      *
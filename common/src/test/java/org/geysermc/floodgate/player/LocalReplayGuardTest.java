@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LocalReplayGuardTest {
+    private static final long WINDOW = 6000;
+    private static final long BUCKET_MILLIS = 1000;
+
+    private final LocalReplayGuard guard = new LocalReplayGuard(WINDOW, BUCKET_MILLIS);
+
+    @Test
+    public void deniesDataThatHasBeenUsed() {
+        assertTrue(guard.tryUse(1, 10_000));
+        assertFalse(guard.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void deniesDataOlderThanUsedData() {
+        assertTrue(guard.tryUse(1, 10_000));
+        // older data in the same bucket
+        assertFalse(guard.tryUse(1, 9_500));
+        // older data in a previous bucket
+        assertFalse(guard.tryUse(1, 7_000));
+    }
+
+    @Test
+    public void acceptsNewerData() {
+        assertTrue(guard.tryUse(1, 10_000));
+        assertTrue(guard.tryUse(1, 10_001));
+        assertTrue(guard.tryUse(1, 13_000));
+        assertFalse(guard.tryUse(1, 12_999));
+    }
+
+    @Test
+    public void remembersDataForTheWholeWindow() {
+        assertTrue(guard.tryUse(1, 10_000));
+        // another player moves the guard forward, up to the last bucket that still covers the data
+        assertTrue(guard.tryUse(17, 10_000 + WINDOW));
+        assertFalse(guard.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void reusesBucketsOnceTheyExpired() {
+        // player 17 is in the same stripe as player 1, so they share the buckets
+        assertTrue(guard.tryUse(1, 10_000));
+        // lands in the bucket of the first entry after going around the ring once
+        long nextRound = 10_000 + (WINDOW / BUCKET_MILLIS + 1) * BUCKET_MILLIS;
+        assertTrue(guard.tryUse(17, nextRound));
+        // the entry expired together with its bucket
+        assertTrue(guard.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void acceptsDataForAnExpiredBucketThatIsAlreadyReused() {
+        long nextRound = 10_000 + (WINDOW / BUCKET_MILLIS + 1) * BUCKET_MILLIS;
+        assertTrue(guard.tryUse(17, nextRound));
+        // too old to be accepted by the timestamp check, so it isn't stored either
+        assertTrue(guard.tryUse(1, 10_000));
+        assertTrue(guard.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void keepsPlayersSeparate() {
+        // 1 and 17 share a stripe, 1 and 2 don't
+        assertTrue(guard.tryUse(1, 10_000));
+        assertTrue(guard.tryUse(17, 10_000));
+        assertTrue(guard.tryUse(2, 10_000));
+        assertFalse(guard.tryUse(1, 10_000));
+        assertFalse(guard.tryUse(17, 10_000));
+        assertFalse(guard.tryUse(2, 10_000));
+    }
+
+    @Test
+    public void worksWithNegativeXuidsAndEpochs() {
+        assertTrue(guard.tryUse(-1, -10_000));
+        assertFalse(guard.tryUse(-1, -10_000));
+        assertTrue(guard.tryUse(-1, -9_000));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.geysermc.floodgate.config.FloodgateConfig;
+import org.geysermc.floodgate.config.FloodgateConfigHolder;
+import org.junit.Test;
+
+public class SharedReplayGuardTest {
+    // a local stand-in for a key-value store that is shared between multiple instances
+    private final InMemoryBackend backend = new InMemoryBackend();
+
+    @Test
+    public void deniesDataUsedByAnotherInstanceWithTheSameTarget() {
+        ReplayGuard first = createGuard("proxies");
+        ReplayGuard second = createGuard("proxies");
+
+        assertTrue(first.tryUse(1, 10_000));
+        assertFalse(second.tryUse(1, 10_000));
+        assertTrue(second.tryUse(1, 10_001));
+        assertFalse(first.tryUse(1, 10_001));
+    }
+
+    @Test
+    public void acceptsDataUsedByAnotherTarget() {
+        // e.g. two servers that receive the same data from their proxy
+        ReplayGuard lobby = createGuard("lobby");
+        ReplayGuard survival = createGuard("survival");
+
+        assertTrue(lobby.tryUse(1, 10_000));
+        assertTrue(survival.tryUse(1, 10_000));
+        assertFalse(lobby.tryUse(1, 10_000));
+        assertFalse(survival.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void sharesNothingWithoutTarget() {
+        ReplayGuard first = createGuard(null);
+        ReplayGuard second = createGuard("");
+
+        assertTrue(first.tryUse(1, 10_000));
+        assertTrue(second.tryUse(1, 10_000));
+        assertFalse(first.tryUse(1, 10_000));
+    }
+
+    @Test
+    public void doesNotAskTheBackendForLocalReplays() {
+        ReplayGuard guard = createGuard("proxies");
+
+        assertTrue(guard.tryUse(1, 10_000));
+        assertFalse(guard.tryUse(1, 10_000));
+        assertEquals(1, backend.requests);
+    }
+
+    private ReplayGuard createGuard(String target) {
+        FloodgateConfigHolder configHolder = new FloodgateConfigHolder();
+        configHolder.set(new FloodgateConfig() {
+            @Override
+            public String getReplayGuardTarget() {
+                return target;
+            }
+        });
+        return new SharedReplayGuard(new LocalReplayGuard(), backend, configHolder);
+    }
+
+    private static final class InMemoryBackend implements ReplayGuardBackend {
+        private final Map<String, Long> used = new HashMap<>();
+        private int requests;
+
+        @Override
+        public synchronized boolean tryUse(String target, long xuid, long timestamp) {
+            requests++;
+            String key = target + ':' + xuid;
+            Long lastUsed = used.get(key);
+            if (lastUsed != null && lastUsed >= timestamp) {
+                return false;
+            }
+            used.put(key, timestamp);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.pluginmessage.channel;
+
+/**
+ * Shows the bytes saved by compressing forms and the cost of creating the form data, with and
+ * without compression. This isn't a unit test, run the main method after compiling the tests.
+ */
+public final class FormCompressionBenchmark {
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    private FormCompressionBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        run("modal", SampleForms.modal());
+        run("shop (10 items)", SampleForms.shop(10));
+        run("shop (50 items)", SampleForms.shop(50));
+        run("settings (20 options)", SampleForms.settings(20));
+        run("settings (500 options)", SampleForms.settings(500));
+    }
+
+    private static void run(String name, String json) {
+        int plainSize = FormChannel.createFormData(1, (short) 1, json, false).length;
+        int compressedSize = FormChannel.createFormData(1, (short) 1, json, true).length;
+
+        measure(json, false, WARMUP_ITERATIONS);
+        measure(json, true, WARMUP_ITERATIONS);
+        long plainNanos = measure(json, false, ITERATIONS);
+        long compressedNanos = measure(json, true, ITERATIONS);
+
+        System.out.printf(
+                "%-24s %7d -> %7d bytes (%5.1f%% saved), encode %8.2f us -> %8.2f us%n",
+                name, plainSize, compressedSize, 100.0 - compressedSize * 100.0 / plainSize,
+                plainNanos / 1000.0, compressedNanos / 1000.0);
+    }
+
+    /**
+     * @return the average time in nanoseconds it took to create the form data
+     */
+    private static long measure(String json, boolean compress, int iterations) {
+        long blackhole = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            blackhole += FormChannel.createFormData(1, (short) i, json, compress).length;
+        }
+        long elapsed = System.nanoTime() - start;
+        // make sure the JIT can't remove the loop
+        if (blackhole == 42) {
+            System.out.println();
+        }
+        return elapsed / iterations;
+    }
+}
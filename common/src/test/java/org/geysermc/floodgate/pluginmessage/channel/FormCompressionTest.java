@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.pluginmessage.channel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import org.junit.Test;
+
+public class FormCompressionTest {
+    private static final int FORM_TYPE = 1;
+    private static final short FORM_ID = (short) 0x8005;
+
+    @Test
+    public void compressesLargeForms() throws DataFormatException {
+        String json = SampleForms.shop(40);
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, json, true);
+
+        assertEquals(FORM_TYPE | 0x80, data[0] & 0xFF);
+        assertEquals(FORM_ID, (short) ((data[1] & 0xFF) << 8 | data[2] & 0xFF));
+        assertJsonEquals(json, FormCompression.decompress(data, 3, data.length - 3));
+        // most of a shop menu is repeated keys and urls
+        assertTrue(data.length < json.length() / 3);
+    }
+
+    @Test
+    public void compressesDropdowns() throws DataFormatException {
+        String json = SampleForms.settings(200);
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, json, true);
+
+        assertEquals(FORM_TYPE | 0x80, data[0] & 0xFF);
+        assertJsonEquals(json, FormCompression.decompress(data, 3, data.length - 3));
+        assertTrue(data.length < json.length() / 2);
+    }
+
+    @Test
+    public void doesNotCompressSmallForms() {
+        String json = SampleForms.modal();
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, json, true);
+
+        assertEquals(FORM_TYPE, data[0] & 0xFF);
+        assertEquals(3 + json.length(), data.length);
+    }
+
+    @Test
+    public void doesNotCompressWithoutCapability() {
+        String json = SampleForms.shop(40);
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, json, false);
+
+        assertEquals(FORM_TYPE, data[0] & 0xFF);
+        byte[] jsonData = new byte[data.length - 3];
+        System.arraycopy(data, 3, jsonData, 0, jsonData.length);
+        assertJsonEquals(json, jsonData);
+    }
+
+    @Test
+    public void compressesHeapBuffers() throws DataFormatException {
+        String json = SampleForms.settings(50);
+        ByteBuf out = Unpooled.buffer();
+        FormCompression.compress(
+                Unpooled.wrappedBuffer(json.getBytes(StandardCharsets.UTF_8)), out);
+
+        byte[] compressed = new byte[out.readableBytes()];
+        out.readBytes(compressed);
+        assertJsonEquals(json, FormCompression.decompress(compressed, 0, compressed.length));
+    }
+
+    @Test
+    public void compressesMultiByteCharacters() throws DataFormatException {
+        // multi byte characters have to survive the direct buffer encoding
+        String json = SampleForms.shop(10).replace("Item", "Ítem ✦ 物品");
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, json, true);
+
+        assertJsonEquals(json, FormCompression.decompress(data, 3, data.length - 3));
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void rejectsIncompleteData() throws DataFormatException {
+        byte[] data = FormChannel.createFormData(FORM_TYPE, FORM_ID, SampleForms.shop(40), true);
+        FormCompression.decompress(data, 3, (data.length - 3) / 2);
+    }
+
+    private static void assertJsonEquals(String expected, byte[] actual) {
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), actual);
+    }
+}
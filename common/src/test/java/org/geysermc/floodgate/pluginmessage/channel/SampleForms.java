@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.pluginmessage.channel;
+
+/**
+ * The json data of forms like the ones plugins commonly send, in the format Cumulus creates.
+ */
+final class SampleForms {
+    private SampleForms() {
+    }
+
+    static String modal() {
+        return "{\"type\":\"modal\",\"title\":\"Teleport\",\"content\":\"Do you want to teleport " +
+                "to spawn?\",\"button1\":\"Yes\",\"button2\":\"No\"}";
+    }
+
+    /**
+     * A shop menu with a button and an image url for every item.
+     */
+    static String shop(int items) {
+        StringBuilder json = new StringBuilder(
+                "{\"type\":\"form\",\"title\":\"§6Shop\",\"content\":\"Pick an item to buy\"," +
+                        "\"buttons\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"text\":\"Item ").append(i).append("\\n§a").append(i * 25)
+                    .append(" coins\",\"image\":{\"type\":\"url\",\"data\":\"")
+                    .append("https://cdn.example.com/shop/icons/item_").append(i)
+                    .append(".png\"}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * A settings form with a long dropdown and a couple of other components.
+     */
+    static String settings(int options) {
+        StringBuilder json = new StringBuilder(
+                "{\"type\":\"custom_form\",\"title\":\"Settings\",\"content\":[" +
+                        "{\"type\":\"label\",\"text\":\"Change your settings\"}," +
+                        "{\"type\":\"input\",\"text\":\"Nickname\",\"placeholder\":\"Steve\"," +
+                        "\"default\":\"\"}," +
+                        "{\"type\":\"toggle\",\"text\":\"Show scoreboard\",\"default\":true}," +
+                        "{\"type\":\"slider\",\"text\":\"Render distance\",\"min\":2.0," +
+                        "\"max\":32.0,\"step\":1.0,\"default\":8.0}," +
+                        "{\"type\":\"dropdown\",\"text\":\"Home\",\"options\":[");
+        for (int i = 0; i < options; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"Home ").append(i).append(" (world_").append(i % 3).append(")\"");
+        }
+        return json.append("],\"default\":0}]}").toString();
+    }
+}
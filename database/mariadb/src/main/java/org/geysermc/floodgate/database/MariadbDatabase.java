@@ -22,11 +22,11 @@
  * @author GeyserMC
  * @link https://github.com/GeyserMC/Floodgate
  */
-
 package org.geysermc.floodgate.database;
 
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.sql.Connection;
@@ -35,24 +35,43 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.geysermc.floodgate.api.link.LinkRequest;
 import org.geysermc.floodgate.api.link.LinkRequestResult;
 import org.geysermc.floodgate.database.config.MariadbConfig;
 import org.geysermc.floodgate.link.CommonPlayerLink;
+import org.geysermc.floodgate.link.ConnectionPoolMetrics;
 import org.geysermc.floodgate.link.LinkRequestImpl;
 import org.geysermc.floodgate.util.LinkedPlayer;
 import org.mariadb.jdbc.MariaDbPoolDataSource;
 
-public class MariadbDatabase extends CommonPlayerLink {
+public class MariadbDatabase extends CommonPlayerLink implements ConnectionPoolMetrics {
+    private static final String POOL_NAME = "floodgate";
+
     @Inject
     @Named("databaseName")
     private final String name = "mariadb";
 
+    private final LongAdder connectionRequests = new LongAdder();
+    private final LongAdder connectionWaitTime = new LongAdder();
+
     private MariaDbPoolDataSource pool;
+    private volatile ObjectName poolObjectName;
+    private int queryTimeout;
 
     @Override
     public void load() {
@@ -60,35 +79,50 @@ public class MariadbDatabase extends CommonPlayerLink {
         try {
             Class.forName("org.mariadb.jdbc.Driver");
             MariadbConfig databaseconfig = getConfig(MariadbConfig.class);
+            queryTimeout = databaseconfig.getQueryTimeout();
+
             pool = new MariaDbPoolDataSource(
                     "jdbc:mariadb://" + databaseconfig.getHostname() + "/" +
                             databaseconfig.getDatabase() +
-                            "?user=" + databaseconfig.getUsername() + "&password=" +
-                            databaseconfig.getPassword() +
-                            "&minPoolSize=2&maxPoolSize=10"
+                            "?minPoolSize=" + databaseconfig.getMinPoolSize() +
+                            "&maxPoolSize=" + databaseconfig.getMaxPoolSize() +
+                            "&maxIdleTime=" + databaseconfig.getMaxIdleTime() +
+                            "&connectTimeout=" + databaseconfig.getConnectTimeout() +
+                            "&useServerPrepStmts=true&cachePrepStmts=true" +
+                            "&registerJmxPool=true&poolName=" + POOL_NAME
             );
+            pool.setUser(databaseconfig.getUsername());
+            pool.setPassword(databaseconfig.getPassword());
 
-            Connection connection = pool.getConnection();
-            Statement statement = connection.createStatement();
-            statement.setQueryTimeout(25);  // set timeout to 30 sec.
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS `LinkedPlayers` ( " +
-                            "`bedrockId` BINARY(16) NOT NULL , " +
-                            "`javaUniqueId` BINARY(16) NOT NULL , " +
-                            "`javaUsername` VARCHAR(16) NOT NULL , " +
-                            " PRIMARY KEY (`bedrockId`) , " +
-                            " INDEX (`bedrockId`, `javaUniqueId`)" +
-                            ") ENGINE = InnoDB;"
-            );
-            statement.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS `LinkedPlayersRequest` ( " +
-                            "`javaUsername` VARCHAR(16) NOT NULL , `javaUniqueId` BINARY(16) NOT NULL , " +
-                            "`linkCode` VARCHAR(16) NOT NULL , " +
-                            "`bedrockUsername` VARCHAR(16) NOT NULL ," +
-                            "`requestTime` BIGINT NOT NULL , " +
-                            " PRIMARY KEY (`javaUsername`), INDEX(`requestTime`)" +
-                            " ) ENGINE = InnoDB;"
-            );
+            try (Connection connection = getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(queryTimeout);
+                statement.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS `LinkedPlayers` ( " +
+                                "`bedrockId` BINARY(16) NOT NULL , " +
+                                "`javaUniqueId` BINARY(16) NOT NULL , " +
+                                "`javaUsername` VARCHAR(16) NOT NULL , " +
+                                " PRIMARY KEY (`bedrockId`) , " +
+                                " INDEX (`bedrockId`, `javaUniqueId`) , " +
+                                " INDEX `javaUniqueIdIndex` (`javaUniqueId`)" +
+                                ") ENGINE = InnoDB;"
+                );
+                // tables created before the javaUniqueId index existed don't have it yet
+                statement.executeUpdate(
+                        "CREATE INDEX IF NOT EXISTS `javaUniqueIdIndex` " +
+                                "ON `LinkedPlayers` (`javaUniqueId`);"
+                );
+                statement.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS `LinkedPlayersRequest` ( " +
+                                "`javaUsername` VARCHAR(16) NOT NULL , " +
+                                "`javaUniqueId` BINARY(16) NOT NULL , " +
+                                "`linkCode` VARCHAR(16) NOT NULL , " +
+                                "`bedrockUsername` VARCHAR(16) NOT NULL ," +
+                                "`requestTime` BIGINT NOT NULL , " +
+                                " PRIMARY KEY (`javaUsername`), INDEX(`requestTime`)" +
+                                " ) ENGINE = InnoDB;"
+                );
+            }
             getLogger().info("Connected to mariadb database.");
         } catch (ClassNotFoundException exception) {
             getLogger().error("The required class to load the MariaDB database wasn't found");
@@ -103,24 +137,86 @@ public class MariadbDatabase extends CommonPlayerLink {
         pool.close();
     }
 
+    /**
+     * Borrows a connection from the pool. The connection has to be closed to return it to the
+     * pool, so it should always be used in a try-with-resources block.
+     */
+    private Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return pool.getConnection();
+        } finally {
+            connectionWaitTime.add(System.nanoTime() - start);
+            connectionRequests.increment();
+        }
+    }
+
+    private PreparedStatement prepareStatement(Connection connection, String sql)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setQueryTimeout(queryTimeout);
+        return statement;
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return getPoolAttribute("ActiveConnections");
+    }
+
+    @Override
+    public long getIdleConnections() {
+        return getPoolAttribute("IdleConnections");
+    }
+
+    @Override
+    public double getAverageConnectionWaitTime() {
+        long requests = connectionRequests.sum();
+        if (requests == 0) {
+            return 0;
+        }
+        return (double) connectionWaitTime.sum() / requests / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private long getPoolAttribute(String attribute) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName poolName = poolObjectName;
+            if (poolName == null) {
+                // the driver registers the pool as <poolName>-<poolIndex>
+                Set<ObjectName> names = server.queryNames(
+                        new ObjectName("org.mariadb.jdbc.pool:type=" + POOL_NAME + "-*"), null);
+                if (names.isEmpty()) {
+                    return -1;
+                }
+                poolName = names.iterator().next();
+                poolObjectName = poolName;
+            }
+            return ((Number) server.getAttribute(poolName, attribute)).longValue();
+        } catch (Exception exception) {
+            // the pool might have been registered again under another index
+            poolObjectName = null;
+            return -1;
+        }
+    }
+
     @Override
     @NonNull
     public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                Connection connection = pool.getConnection();
-                PreparedStatement query = connection.prepareStatement(
-                        "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` = ?"
-                );
+            try (Connection connection = getConnection();
+                 PreparedStatement query = prepareStatement(connection,
+                         "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` = ?")) {
+
                 query.setBytes(1, uuidToBytes(bedrockId));
-                ResultSet result = query.executeQuery();
-                if (!result.next()) {
-                    return null;
-                }
+                try (ResultSet result = query.executeQuery()) {
+                    if (!result.next()) {
+                        return null;
+                    }
 
-                String javaUsername = result.getString("javaUsername");
-                UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
-                return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+                    String javaUsername = result.getString("javaUsername");
+                    UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
+                    return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+                }
             } catch (SQLException | NullPointerException exception) {
                 getLogger().error("Error while getting LinkedPlayer", exception);
                 throw new CompletionException("Error while getting LinkedPlayer", exception);
@@ -132,16 +228,17 @@ public class MariadbDatabase extends CommonPlayerLink {
     @NonNull
     public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
         return CompletableFuture.supplyAsync(() -> {
-            try {
-                Connection connection = pool.getConnection();
-                PreparedStatement query = connection.prepareStatement(
-                        "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` = ? OR `javaUniqueId` = ?"
-                );
+            try (Connection connection = getConnection();
+                 PreparedStatement query = prepareStatement(connection,
+                         "SELECT 1 FROM `LinkedPlayers` " +
+                                 "WHERE `bedrockId` = ? OR `javaUniqueId` = ? LIMIT 1")) {
+
                 byte[] uuidBytes = uuidToBytes(playerId);
                 query.setBytes(1, uuidBytes);
                 query.setBytes(2, uuidBytes);
-                ResultSet result = query.executeQuery();
-                return result.next();
+                try (ResultSet result = query.executeQuery()) {
+                    return result.next();
+                }
             } catch (SQLException exception) {
                 getLogger().error("Error while checking if player is a LinkedPlayer", exception);
                 throw new CompletionException(
@@ -151,6 +248,104 @@ public class MariadbDatabase extends CommonPlayerLink {
         }, getExecutorService());
     }
 
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        if (bedrockIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            Map<UUID, LinkedPlayer> linkedPlayers = new HashMap<>();
+            List<UUID> ids = new ArrayList<>(bedrockIds);
+
+            try (Connection connection = getConnection()) {
+                for (int start = 0; start < ids.size(); start += MAX_LOOKUP_BATCH_SIZE) {
+                    List<UUID> batch = ids.subList(
+                            start, Math.min(ids.size(), start + MAX_LOOKUP_BATCH_SIZE));
+
+                    try (PreparedStatement query = prepareStatement(connection,
+                            "SELECT * FROM `LinkedPlayers` WHERE `bedrockId` IN (" +
+                                    createParameters(batch.size()) + ")")) {
+
+                        for (int i = 0; i < batch.size(); i++) {
+                            query.setBytes(i + 1, uuidToBytes(batch.get(i)));
+                        }
+
+                        try (ResultSet result = query.executeQuery()) {
+                            while (result.next()) {
+                                UUID bedrockId = bytesToUUID(result.getBytes("bedrockId"));
+                                String javaUsername = result.getString("javaUsername");
+                                UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
+                                linkedPlayers.put(bedrockId,
+                                        LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException exception) {
+                getLogger().error("Error while getting LinkedPlayers", exception);
+                throw new CompletionException("Error while getting LinkedPlayers", exception);
+            }
+            return linkedPlayers;
+        }, getExecutorService());
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, Boolean>> isLinkedPlayers(
+            @NonNull Collection<UUID> playerIds) {
+        if (playerIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            Set<UUID> linkedIds = new HashSet<>();
+            List<UUID> ids = new ArrayList<>(playerIds);
+
+            try (Connection connection = getConnection()) {
+                for (int start = 0; start < ids.size(); start += MAX_LOOKUP_BATCH_SIZE) {
+                    List<UUID> batch = ids.subList(
+                            start, Math.min(ids.size(), start + MAX_LOOKUP_BATCH_SIZE));
+                    String parameters = createParameters(batch.size());
+
+                    try (PreparedStatement query = prepareStatement(connection,
+                            "SELECT `bedrockId`, `javaUniqueId` FROM `LinkedPlayers` " +
+                                    "WHERE `bedrockId` IN (" + parameters + ") " +
+                                    "UNION " +
+                                    "SELECT `bedrockId`, `javaUniqueId` FROM `LinkedPlayers` " +
+                                    "WHERE `javaUniqueId` IN (" + parameters + ")")) {
+
+                        for (int i = 0; i < batch.size(); i++) {
+                            byte[] uuidBytes = uuidToBytes(batch.get(i));
+                            query.setBytes(i + 1, uuidBytes);
+                            query.setBytes(batch.size() + i + 1, uuidBytes);
+                        }
+
+                        try (ResultSet result = query.executeQuery()) {
+                            while (result.next()) {
+                                linkedIds.add(bytesToUUID(result.getBytes("bedrockId")));
+                                linkedIds.add(bytesToUUID(result.getBytes("javaUniqueId")));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException exception) {
+                getLogger().error("Error while checking if players are LinkedPlayers", exception);
+                throw new CompletionException(
+                        "Error while checking if players are LinkedPlayers", exception
+                );
+            }
+
+            Map<UUID, Boolean> linked = new HashMap<>();
+            for (UUID playerId : playerIds) {
+                linked.put(playerId, linkedIds.contains(playerId));
+            }
+            return linked;
+        }, getExecutorService());
+    }
+
     @Override
     @NonNull
     public CompletableFuture<Void> linkPlayer(@NonNull UUID bedrockId, @NonNull UUID javaId,
@@ -161,13 +356,12 @@ public class MariadbDatabase extends CommonPlayerLink {
     }
 
     private void linkPlayer0(UUID bedrockId, UUID javaId, String javaUsername) {
-        try {
-            Connection connection = pool.getConnection();
-            PreparedStatement query = connection.prepareStatement(
-                    "INSERT INTO `LinkedPlayers` VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE " +
-                            "`javaUniqueId`=VALUES(`javaUniqueId`), " +
-                            "`javaUsername`=VALUES(`javaUsername`);"
-            );
+        try (Connection connection = getConnection();
+             PreparedStatement query = prepareStatement(connection,
+                     "INSERT INTO `LinkedPlayers` VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                             "`javaUniqueId`=VALUES(`javaUniqueId`), " +
+                             "`javaUsername`=VALUES(`javaUsername`);")) {
+
             query.setBytes(1, uuidToBytes(bedrockId));
             query.setBytes(2, uuidToBytes(javaId));
             query.setString(3, javaUsername);
@@ -182,11 +376,11 @@ public class MariadbDatabase extends CommonPlayerLink {
     @NonNull
     public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
         return CompletableFuture.runAsync(() -> {
-            try {
-                Connection connection = pool.getConnection();
-                PreparedStatement query = connection.prepareStatement(
-                        "DELETE FROM `LinkedPlayers` WHERE `javaUniqueId` = ? OR `bedrockId` = ?"
-                );
+            try (Connection connection = getConnection();
+                 PreparedStatement query = prepareStatement(connection,
+                         "DELETE FROM `LinkedPlayers` " +
+                                 "WHERE `javaUniqueId` = ? OR `bedrockId` = ?")) {
+
                 byte[] uuidBytes = uuidToBytes(javaId);
                 query.setBytes(1, uuidBytes);
                 query.setBytes(2, uuidBytes);
@@ -214,16 +408,15 @@ public class MariadbDatabase extends CommonPlayerLink {
 
     private void createLinkRequest0(String javaUsername, UUID javaId, String linkCode,
                                     String bedrockUsername) {
-        try {
-            Connection connection = pool.getConnection();
-            PreparedStatement query = connection.prepareStatement(
-                    "INSERT INTO `LinkedPlayersRequest` VALUES (?, ?, ?, ?, ?) " +
-                            "ON DUPLICATE KEY UPDATE " +
-                            "`javaUniqueId`=VALUES(`javaUniqueId`), " +
-                            "`linkCode`=VALUES(`linkCode`), " +
-                            "`bedrockUsername`=VALUES(`bedrockUsername`), " +
-                            "`requestTime`=VALUES(`requestTime`);"
-            );
+        try (Connection connection = getConnection();
+             PreparedStatement query = prepareStatement(connection,
+                     "INSERT INTO `LinkedPlayersRequest` VALUES (?, ?, ?, ?, ?) " +
+                             "ON DUPLICATE KEY UPDATE " +
+                             "`javaUniqueId`=VALUES(`javaUniqueId`), " +
+                             "`linkCode`=VALUES(`linkCode`), " +
+                             "`bedrockUsername`=VALUES(`bedrockUsername`), " +
+                             "`requestTime`=VALUES(`requestTime`);")) {
+
             query.setString(1, javaUsername);
             query.setBytes(2, uuidToBytes(javaId));
             query.setString(3, linkCode);
@@ -237,11 +430,10 @@ public class MariadbDatabase extends CommonPlayerLink {
     }
 
     private void removeLinkRequest(String javaUsername) {
-        try {
-            Connection connection = pool.getConnection();
-            PreparedStatement query = connection.prepareStatement(
-                    "DELETE FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?"
-            );
+        try (Connection connection = getConnection();
+             PreparedStatement query = prepareStatement(connection,
+                     "DELETE FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?")) {
+
             query.setString(1, javaUsername);
             query.executeUpdate();
         } catch (SQLException | NullPointerException exception) {
@@ -280,22 +472,20 @@ public class MariadbDatabase extends CommonPlayerLink {
     }
 
     private LinkRequest getLinkRequest0(String javaUsername) {
-        try {
-            Connection connection = pool.getConnection();
+        try (Connection connection = getConnection();
+             PreparedStatement query = prepareStatement(connection,
+                     "SELECT * FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?")) {
 
-            PreparedStatement query = connection.prepareStatement(
-                    "SELECT * FROM `LinkedPlayersRequest` WHERE `javaUsername` = ?"
-            );
             query.setString(1, javaUsername);
-            ResultSet result = query.executeQuery();
-
-            if (result.next()) {
-                UUID javaId = bytesToUUID(result.getBytes(2));
-                String linkCode = result.getString(3);
-                String bedrockUsername = result.getString(4);
-                long requestTime = result.getLong(5);
-                return new LinkRequestImpl(javaUsername, javaId, linkCode, bedrockUsername,
-                        requestTime);
+            try (ResultSet result = query.executeQuery()) {
+                if (result.next()) {
+                    UUID javaId = bytesToUUID(result.getBytes(2));
+                    String linkCode = result.getString(3);
+                    String bedrockUsername = result.getString(4);
+                    long requestTime = result.getLong(5);
+                    return new LinkRequestImpl(javaUsername, javaId, linkCode, bedrockUsername,
+                            requestTime);
+                }
             }
         } catch (SQLException | NullPointerException exception) {
             getLogger().error("Error while getLinkRequest", exception);
@@ -304,12 +494,12 @@ public class MariadbDatabase extends CommonPlayerLink {
         return null;
     }
 
+    @Override
     public void cleanLinkRequests() {
-        try {
-            Connection connection = pool.getConnection();
-            PreparedStatement query = connection.prepareStatement(
-                    "DELETE FROM `LinkedPlayersRequest` WHERE `requestTime` < ?"
-            );
+        try (Connection connection = getConnection();
+             PreparedStatement query = prepareStatement(connection,
+                     "DELETE FROM `LinkedPlayersRequest` WHERE `requestTime` < ?")) {
+
             query.setLong(1, Instant.now().getEpochSecond() - getVerifyLinkTimeout());
             query.executeUpdate();
         } catch (SQLException | NullPointerException exception) {
@@ -33,4 +33,12 @@ public class MariadbConfig implements DatabaseConfig {
         private String database = "floodgate";
         private String username = "floodgate";
         private String password;
+        private int minPoolSize = 2;
+        private int maxPoolSize = 10;
+        /** The time in seconds before an unused connection above minPoolSize is closed */
+        private int maxIdleTime = 600;
+        /** The time in milliseconds to wait for a connection to the database */
+        private int connectTimeout = 5000;
+        /** The time in seconds a query is allowed to take before it's cancelled */
+        private int queryTimeout = 10;
 }
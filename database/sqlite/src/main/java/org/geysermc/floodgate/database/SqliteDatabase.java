@@ -22,11 +22,14 @@
  * @author GeyserMC
  * @link https://github.com/GeyserMC/Floodgate
  */
-
 package org.geysermc.floodgate.database;
 
+import static org.geysermc.floodgate.util.FloodgateExecutors.threadFactory;
+
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -34,21 +37,54 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.geysermc.floodgate.api.link.LinkRequest;
 import org.geysermc.floodgate.api.link.LinkRequestResult;
 import org.geysermc.floodgate.link.CommonPlayerLink;
 import org.geysermc.floodgate.link.LinkRequestImpl;
+import org.geysermc.floodgate.link.LinkRequestStore;
 import org.geysermc.floodgate.util.LinkedPlayer;
 
+/**
+ * SQLite only allows one writer at a time, so every write goes through a single writer thread
+ * with its own connection. Lookups run on a small pool of reader threads, where every thread has
+ * its own connection. WAL mode makes sure that readers and the writer don't block each other.
+ */
 public class SqliteDatabase extends CommonPlayerLink {
-    private final Map<String, LinkRequest> activeLinkRequests = new HashMap<>();
-    private Connection connection;
+    /**
+     * The version of the database layout, stored in the user_version pragma.<br>
+     * 0: the original layout, with the uuids stored as strings and without any keys<br>
+     * 1: uuids stored as 16 byte blobs, bedrockId as primary key and an index on javaUniqueId
+     */
+    private static final int SCHEMA_VERSION = 1;
+    private static final int MAX_LINK_REQUESTS = 1000;
+    private static final int READER_THREADS = 4;
+    private static final long SHUTDOWN_TIMEOUT = 5;
+
+    private final ExecutorService writeExecutor =
+            Executors.newSingleThreadExecutor(threadFactory("floodgate-sqlite-writer"));
+    // not the shared blocking executor, that might create a new (virtual) thread for every task
+    private final ExecutorService readExecutor =
+            Executors.newFixedThreadPool(READER_THREADS, threadFactory("floodgate-sqlite-reader"));
+    private final ThreadLocal<Connection> readConnection = new ThreadLocal<>();
+    private final Set<Connection> readConnections = ConcurrentHashMap.newKeySet();
+    private Connection writeConnection;
+    private String databaseUrl;
+    private LinkRequestStore activeLinkRequests;
 
     @Inject
     @Named("dataDirectory")
@@ -56,26 +92,31 @@ public class SqliteDatabase extends CommonPlayerLink {
 
     @Override
     public void load() {
+        activeLinkRequests = new LinkRequestStore(getVerifyLinkTimeout(), MAX_LINK_REQUESTS);
+
         Path databasePath = dataDirectory.resolve("linked-players.db");
+        databaseUrl = "jdbc:sqlite:" + databasePath.toString();
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath.toString());
-            try (Statement statement = connection.createStatement()) {
-                statement.setQueryTimeout(30);  // set timeout to 30 sec.
-                statement.executeUpdate(
-                        "create table if not exists LinkedPlayers (bedrockId string, javaUniqueId string, javaUsername string)"
-                );
+            writeConnection = openConnection();
+            try (Statement statement = writeConnection.createStatement()) {
+                // the journal mode is stored in the database file itself
+                statement.execute("pragma journal_mode = WAL");
             }
+            migrate(writeConnection);
         } catch (ClassNotFoundException exception) {
             getLogger().error("The required class to load the SQLite database wasn't found");
         } catch (SQLException exception) {
-            getLogger().error("Error while loading database", exception);
+            // without the expected layout every lookup would fail and report 'not linked'
+            closeQuietly(writeConnection);
+            throw new IllegalStateException("Error while loading database", exception);
         }
     }
 
-    @Override
-    public void stop() {
-        super.stop();
+    private void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
         try {
             connection.close();
         } catch (SQLException exception) {
@@ -83,47 +124,282 @@ public class SqliteDatabase extends CommonPlayerLink {
         }
     }
 
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(databaseUrl);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("pragma busy_timeout = 30000");
+            // safe in WAL mode, a commit only has to wait on the WAL file
+            statement.execute("pragma synchronous = NORMAL");
+            // 8MB page cache per connection
+            statement.execute("pragma cache_size = -8000");
+            statement.execute("pragma temp_store = MEMORY");
+        }
+        return connection;
+    }
+
+    private Connection getReadConnection() throws SQLException {
+        Connection connection = readConnection.get();
+        if (connection == null) {
+            connection = openConnection();
+            readConnection.set(connection);
+            readConnections.add(connection);
+        }
+        return connection;
+    }
+
+    private void migrate(Connection connection) throws SQLException {
+        int version;
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("pragma user_version")) {
+            version = result.next() ? result.getInt(1) : 0;
+        }
+
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(
+                    "create table LinkedPlayersNew (" +
+                            "bedrockId blob not null primary key, " +
+                            "javaUniqueId blob not null, " +
+                            "javaUsername text not null" +
+                            ") without rowid");
+
+            if (tableExists(connection, "LinkedPlayers")) {
+                int migrated = copyLegacyLinks(connection);
+                statement.executeUpdate("drop table LinkedPlayers");
+                getLogger().info("Migrated {} linked players to the new database layout",
+                        migrated);
+            }
+
+            statement.executeUpdate("alter table LinkedPlayersNew rename to LinkedPlayers");
+            statement.executeUpdate(
+                    "create index LinkedPlayers_javaUniqueId on LinkedPlayers (javaUniqueId)");
+            statement.executeUpdate("pragma user_version = " + SCHEMA_VERSION);
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "select 1 from sqlite_master where type = 'table' and name = ?")) {
+            query.setString(1, table);
+            try (ResultSet result = query.executeQuery()) {
+                return result.next();
+            }
+        }
+    }
+
+    private int copyLegacyLinks(Connection connection) throws SQLException {
+        int migrated = 0;
+        try (Statement select = connection.createStatement();
+             ResultSet result = select.executeQuery(
+                     "select bedrockId, javaUniqueId, javaUsername from LinkedPlayers");
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert or replace into LinkedPlayersNew values(?, ?, ?)")) {
+
+            while (result.next()) {
+                String bedrockId = result.getString("bedrockId");
+                String javaUniqueId = result.getString("javaUniqueId");
+                try {
+                    insert.setBytes(1, uuidToBytes(UUID.fromString(bedrockId)));
+                    insert.setBytes(2, uuidToBytes(UUID.fromString(javaUniqueId)));
+                } catch (IllegalArgumentException | NullPointerException exception) {
+                    getLogger().warn("Skipping invalid link between {} and {}",
+                            bedrockId, javaUniqueId);
+                    continue;
+                }
+                insert.setString(3, result.getString("javaUsername"));
+                insert.addBatch();
+                migrated++;
+            }
+            insert.executeBatch();
+        }
+        return migrated;
+    }
+
+    @Override
+    protected void cleanLinkRequests() {
+        if (activeLinkRequests != null) {
+            activeLinkRequests.removeExpired();
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        // the connections can only be closed once no task is using them anymore
+        writeExecutor.shutdown();
+        readExecutor.shutdown();
+        awaitTermination(writeExecutor);
+        awaitTermination(readExecutor);
+
+        for (Connection connection : readConnections) {
+            closeQuietly(connection);
+        }
+        closeQuietly(writeConnection);
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                getLogger().warn("Database tasks didn't finish within {} seconds",
+                        SHUTDOWN_TIMEOUT);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     @NonNull
     public CompletableFuture<LinkedPlayer> getLinkedPlayer(@NonNull UUID bedrockId) {
         return CompletableFuture.supplyAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
-                    "select * from LinkedPlayers where bedrockId = ?")) {
+            try (PreparedStatement query = getReadConnection().prepareStatement(
+                    "select javaUniqueId, javaUsername from LinkedPlayers where bedrockId = ?")) {
 
-                query.setString(1, bedrockId.toString());
-                ResultSet result = query.executeQuery();
-                if (!result.next()) {
-                    return null;
-                }
+                query.setBytes(1, uuidToBytes(bedrockId));
+                try (ResultSet result = query.executeQuery()) {
+                    if (!result.next()) {
+                        return null;
+                    }
 
-                String javaUsername = result.getString("javaUsername");
-                UUID javaUniqueId = UUID.fromString(result.getString("javaUniqueId"));
-                return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+                    String javaUsername = result.getString("javaUsername");
+                    UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
+                    return LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId);
+                }
             } catch (SQLException exception) {
                 getLogger().error("Error while getting LinkedPlayer", exception);
                 throw new CompletionException("Error while getting LinkedPlayer", exception);
             }
-        }, getExecutorService());
+        }, readExecutor);
     }
 
     @Override
     @NonNull
     public CompletableFuture<Boolean> isLinkedPlayer(@NonNull UUID playerId) {
         return CompletableFuture.supplyAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
-                    "select javaUniqueId from LinkedPlayers where bedrockId = ? or javaUniqueId = ?")) {
+            // two separate lookups so that both the primary key and the index can be used
+            try (PreparedStatement query = getReadConnection().prepareStatement(
+                    "select 1 where exists (select 1 from LinkedPlayers where bedrockId = ?) " +
+                            "or exists (select 1 from LinkedPlayers where javaUniqueId = ?)")) {
 
-                query.setString(1, playerId.toString());
-                query.setString(2, playerId.toString());
-                ResultSet result = query.executeQuery();
-                return result.next();
+                byte[] uuidBytes = uuidToBytes(playerId);
+                query.setBytes(1, uuidBytes);
+                query.setBytes(2, uuidBytes);
+                try (ResultSet result = query.executeQuery()) {
+                    return result.next();
+                }
             } catch (SQLException exception) {
                 getLogger().error("Error while checking if player is a LinkedPlayer", exception);
                 throw new CompletionException(
                         "Error while checking if player is a LinkedPlayer", exception
                 );
             }
-        }, getExecutorService());
+        }, readExecutor);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, LinkedPlayer>> getLinkedPlayers(
+            @NonNull Collection<UUID> bedrockIds) {
+        if (bedrockIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            Map<UUID, LinkedPlayer> linkedPlayers = new HashMap<>();
+            List<UUID> ids = new ArrayList<>(bedrockIds);
+
+            for (int start = 0; start < ids.size(); start += MAX_LOOKUP_BATCH_SIZE) {
+                List<UUID> batch =
+                        ids.subList(start, Math.min(ids.size(), start + MAX_LOOKUP_BATCH_SIZE));
+
+                try (PreparedStatement query = getReadConnection().prepareStatement(
+                        "select * from LinkedPlayers where bedrockId in (" +
+                                createParameters(batch.size()) + ")")) {
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        query.setBytes(i + 1, uuidToBytes(batch.get(i)));
+                    }
+
+                    try (ResultSet result = query.executeQuery()) {
+                        while (result.next()) {
+                            UUID bedrockId = bytesToUUID(result.getBytes("bedrockId"));
+                            String javaUsername = result.getString("javaUsername");
+                            UUID javaUniqueId = bytesToUUID(result.getBytes("javaUniqueId"));
+                            linkedPlayers.put(bedrockId,
+                                    LinkedPlayer.of(javaUsername, javaUniqueId, bedrockId));
+                        }
+                    }
+                } catch (SQLException exception) {
+                    getLogger().error("Error while getting LinkedPlayers", exception);
+                    throw new CompletionException("Error while getting LinkedPlayers", exception);
+                }
+            }
+            return linkedPlayers;
+        }, readExecutor);
+    }
+
+    @Override
+    @NonNull
+    public CompletableFuture<Map<UUID, Boolean>> isLinkedPlayers(
+            @NonNull Collection<UUID> playerIds) {
+        if (playerIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            Set<UUID> linkedIds = new HashSet<>();
+            List<UUID> ids = new ArrayList<>(playerIds);
+
+            for (int start = 0; start < ids.size(); start += MAX_LOOKUP_BATCH_SIZE) {
+                List<UUID> batch =
+                        ids.subList(start, Math.min(ids.size(), start + MAX_LOOKUP_BATCH_SIZE));
+                String parameters = createParameters(batch.size());
+
+                // a union instead of an or, so that both the primary key and the index are used
+                try (PreparedStatement query = getReadConnection().prepareStatement(
+                        "select bedrockId, javaUniqueId from LinkedPlayers where bedrockId in (" +
+                                parameters + ") union select bedrockId, javaUniqueId from " +
+                                "LinkedPlayers where javaUniqueId in (" + parameters + ")")) {
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        byte[] uuidBytes = uuidToBytes(batch.get(i));
+                        query.setBytes(i + 1, uuidBytes);
+                        query.setBytes(batch.size() + i + 1, uuidBytes);
+                    }
+
+                    try (ResultSet result = query.executeQuery()) {
+                        while (result.next()) {
+                            linkedIds.add(bytesToUUID(result.getBytes("bedrockId")));
+                            linkedIds.add(bytesToUUID(result.getBytes("javaUniqueId")));
+                        }
+                    }
+                } catch (SQLException exception) {
+                    getLogger().error("Error while checking if players are LinkedPlayers",
+                            exception);
+                    throw new CompletionException(
+                            "Error while checking if players are LinkedPlayers", exception
+                    );
+                }
+            }
+
+            Map<UUID, Boolean> linked = new HashMap<>();
+            for (UUID playerId : playerIds) {
+                linked.put(playerId, linkedIds.contains(playerId));
+            }
+            return linked;
+        }, readExecutor);
     }
 
     @Override
@@ -134,15 +410,15 @@ public class SqliteDatabase extends CommonPlayerLink {
             @NonNull String username) {
         return CompletableFuture.runAsync(
                 () -> linkPlayer0(bedrockId, javaId, username),
-                getExecutorService());
+                writeExecutor);
     }
 
     private void linkPlayer0(UUID bedrockId, UUID javaId, String username) {
-        try (PreparedStatement query =
-                     connection.prepareStatement("insert into LinkedPlayers values(?, ?, ?)")) {
+        try (PreparedStatement query = writeConnection.prepareStatement(
+                "insert or replace into LinkedPlayers values(?, ?, ?)")) {
 
-            query.setString(1, bedrockId.toString());
-            query.setString(2, javaId.toString());
+            query.setBytes(1, uuidToBytes(bedrockId));
+            query.setBytes(2, uuidToBytes(javaId));
             query.setString(3, username);
             query.executeUpdate();
         } catch (SQLException exception) {
@@ -155,17 +431,18 @@ public class SqliteDatabase extends CommonPlayerLink {
     @NonNull
     public CompletableFuture<Void> unlinkPlayer(@NonNull UUID javaId) {
         return CompletableFuture.runAsync(() -> {
-            try (PreparedStatement query = connection.prepareStatement(
+            try (PreparedStatement query = writeConnection.prepareStatement(
                     "delete from LinkedPlayers where javaUniqueId = ? or bedrockId = ?")) {
 
-                query.setString(1, javaId.toString());
-                query.setString(2, javaId.toString());
+                byte[] uuidBytes = uuidToBytes(javaId);
+                query.setBytes(1, uuidBytes);
+                query.setBytes(2, uuidBytes);
                 query.executeUpdate();
             } catch (SQLException exception) {
                 getLogger().error("Error while unlinking player", exception);
                 throw new CompletionException("Error while unlinking player", exception);
             }
-        }, getExecutorService());
+        }, writeExecutor);
     }
 
     @Override
@@ -179,7 +456,7 @@ public class SqliteDatabase extends CommonPlayerLink {
             LinkRequest request =
                     new LinkRequestImpl(javaUsername, javaId, createCode(), bedrockUsername);
 
-            activeLinkRequests.put(javaUsername, request);
+            activeLinkRequests.put(request);
 
             return request.getLinkCode();
         }, getExecutorService());
@@ -213,6 +490,20 @@ public class SqliteDatabase extends CommonPlayerLink {
 
             linkPlayer0(bedrockId, request.getJavaUniqueId(), javaUsername);
             return LinkRequestResult.LINK_COMPLETED;
-        }, getExecutorService());
+        }, writeExecutor);
+    }
+
+    private byte[] uuidToBytes(UUID uuid) {
+        byte[] uuidBytes = new byte[16];
+        ByteBuffer.wrap(uuidBytes)
+                .order(ByteOrder.BIG_ENDIAN)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits());
+        return uuidBytes;
+    }
+
+    private UUID bytesToUUID(byte[] uuidBytes) {
+        ByteBuffer buf = ByteBuffer.wrap(uuidBytes);
+        return new UUID(buf.getLong(), buf.getLong());
     }
 }
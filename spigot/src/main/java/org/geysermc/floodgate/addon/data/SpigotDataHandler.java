@@ -27,22 +27,26 @@ package org.geysermc.floodgate.addon.data;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.geysermc.floodgate.util.ReflectionUtils.getCastedValue;
+import static org.geysermc.floodgate.util.ReflectionUtils.getField;
 import static org.geysermc.floodgate.util.ReflectionUtils.getFieldOfType;
+import static org.geysermc.floodgate.util.ReflectionUtils.getGetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.getMethod;
+import static org.geysermc.floodgate.util.ReflectionUtils.getMethodHandle;
 import static org.geysermc.floodgate.util.ReflectionUtils.getPrefixedClass;
+import static org.geysermc.floodgate.util.ReflectionUtils.getSetter;
+import static org.geysermc.floodgate.util.ReflectionUtils.getValue;
+import static org.geysermc.floodgate.util.ReflectionUtils.invoke;
 import static org.geysermc.floodgate.util.ReflectionUtils.makeAccessible;
 import static org.geysermc.floodgate.util.ReflectionUtils.setValue;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.ReferenceCountUtil;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.UUID;
-import lombok.RequiredArgsConstructor;
 import org.geysermc.floodgate.api.handshake.HandshakeData;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
@@ -55,39 +59,45 @@ import org.geysermc.floodgate.util.Constants;
 import org.geysermc.floodgate.util.ReflectionUtils;
 import org.geysermc.floodgate.util.SpigotUtils;
 
-@RequiredArgsConstructor
-public final class SpigotDataHandler extends ChannelInboundHandlerAdapter {
-    private static final Field SOCKET_ADDRESS;
+public final class SpigotDataHandler extends CommonDataHandler {
+    private static final MethodHandle SET_SOCKET_ADDRESS;
+    private static final MethodHandle SET_SPOOFED_UUID;
     private static final Class<?> HANDSHAKE_PACKET;
-    private static final Field HANDSHAKE_HOST;
+    private static final MethodHandle GET_HANDSHAKE_HOST;
+    private static final MethodHandle SET_HANDSHAKE_HOST;
 
     private static final Class<?> GAME_PROFILE;
     private static final Constructor<?> GAME_PROFILE_CONSTRUCTOR;
-    private static final Field LOGIN_PROFILE;
+    private static final MethodHandle SET_LOGIN_PROFILE;
 
     private static final Class<?> LOGIN_START_PACKET;
     private static final Class<?> LOGIN_LISTENER;
-    private static final Method INIT_UUID;
+    private static final MethodHandle INIT_UUID;
 
     private static final Class<?> LOGIN_HANDLER;
     private static final Constructor<?> LOGIN_HANDLER_CONSTRUCTOR;
-    private static final Method FIRE_LOGIN_EVENTS;
+    private static final MethodHandle FIRE_LOGIN_EVENTS;
 
-    private static final Field PACKET_LISTENER;
-    private static final Field PROTOCOL_STATE;
+    private static final MethodHandle GET_PACKET_LISTENER;
+    private static final MethodHandle SET_PROTOCOL_STATE;
     private static final Object READY_TO_ACCEPT_PROTOCOL_STATE;
 
     static {
         Class<?> networkManager = getPrefixedClass("NetworkManager");
         checkNotNull(networkManager, "NetworkManager class cannot be null");
 
-        SOCKET_ADDRESS = getFieldOfType(networkManager, SocketAddress.class, false);
-        checkNotNull(SOCKET_ADDRESS, "SocketAddress field cannot be null");
+        SET_SOCKET_ADDRESS = getSetter(getFieldOfType(networkManager, SocketAddress.class, false));
+        checkNotNull(SET_SOCKET_ADDRESS, "SocketAddress field cannot be null");
+
+        // only used when BungeeCord forwarding is disabled, so it's fine if it doesn't exist
+        SET_SPOOFED_UUID = getSetter(getField(networkManager, "spoofedUUID"));
 
         HANDSHAKE_PACKET = getPrefixedClass("PacketHandshakingInSetProtocol");
         checkNotNull(HANDSHAKE_PACKET, "PacketHandshakingInSetProtocol cannot be null");
-        HANDSHAKE_HOST = getFieldOfType(HANDSHAKE_PACKET, String.class);
-        checkNotNull(HANDSHAKE_HOST, "Host field from handshake packet cannot be null");
+        Field handshakeHost = getFieldOfType(HANDSHAKE_PACKET, String.class);
+        checkNotNull(handshakeHost, "Host field from handshake packet cannot be null");
+        GET_HANDSHAKE_HOST = getGetter(handshakeHost);
+        SET_HANDSHAKE_HOST = getSetter(handshakeHost);
 
         LOGIN_START_PACKET = getPrefixedClass("PacketLoginInStart");
         checkNotNull(LOGIN_START_PACKET, "PacketLoginInStart cannot be null");
@@ -106,9 +116,9 @@ public final class SpigotDataHandler extends ChannelInboundHandlerAdapter {
 
         LOGIN_LISTENER = getPrefixedClass("LoginListener");
         checkNotNull(LOGIN_LISTENER, "LoginListener cannot be null");
-        LOGIN_PROFILE = getFieldOfType(LOGIN_LISTENER, GAME_PROFILE);
-        checkNotNull(LOGIN_PROFILE, "Profile from LoginListener cannot be null");
-        INIT_UUID = getMethod(LOGIN_LISTENER, "initUUID");
+        SET_LOGIN_PROFILE = getSetter(getFieldOfType(LOGIN_LISTENER, GAME_PROFILE));
+        checkNotNull(SET_LOGIN_PROFILE, "Profile from LoginListener cannot be null");
+        INIT_UUID = getMethodHandle(getMethod(LOGIN_LISTENER, "initUUID"));
         checkNotNull(INIT_UUID, "initUUID from LoginListener cannot be null");
 
         Field protocolStateField = null;
@@ -117,10 +127,10 @@ public final class SpigotDataHandler extends ChannelInboundHandlerAdapter {
                 protocolStateField = field;
             }
         }
-        PROTOCOL_STATE = protocolStateField;
-        checkNotNull(PROTOCOL_STATE, "Protocol state field from LoginListener cannot be null");
+        checkNotNull(protocolStateField, "Protocol state field from LoginListener cannot be null");
+        SET_PROTOCOL_STATE = getSetter(protocolStateField);
 
-        Enum<?>[] protocolStates = (Enum<?>[]) PROTOCOL_STATE.getType().getEnumConstants();
+        Enum<?>[] protocolStates = (Enum<?>[]) protocolStateField.getType().getEnumConstants();
         Object readyToAcceptState = null;
         for (Enum<?> protocolState : protocolStates) {
             if ("READY_TO_ACCEPT".equals(protocolState.name())) {
@@ -132,8 +142,8 @@ public final class SpigotDataHandler extends ChannelInboundHandlerAdapter {
                 "Ready to accept state from Protocol state cannot be null");
 
         Class<?> packetListenerClass = getPrefixedClass("PacketListener");
-        PACKET_LISTENER = getFieldOfType(networkManager, packetListenerClass);
-        checkNotNull(PACKET_LISTENER, "PacketListener cannot be null");
+        GET_PACKET_LISTENER = getGetter(getFieldOfType(networkManager, packetListenerClass));
+        checkNotNull(GET_PACKET_LISTENER, "PacketListener cannot be null");
 
         LOGIN_HANDLER = getPrefixedClass("LoginListener$LoginHandler");
         checkNotNull(LOGIN_HANDLER, "LoginHandler cannot be null");
@@ -148,129 +158,156 @@ public final class SpigotDataHandler extends ChannelInboundHandlerAdapter {
         LOGIN_HANDLER_CONSTRUCTOR = loginHandlerConstructor;
         checkNotNull(LOGIN_HANDLER_CONSTRUCTOR, "LoginHandler constructor cannot be null");
 
-        FIRE_LOGIN_EVENTS = getMethod(LOGIN_HANDLER, "fireEvents");
+        FIRE_LOGIN_EVENTS = getMethodHandle(getMethod(LOGIN_HANDLER, "fireEvents"));
         checkNotNull(FIRE_LOGIN_EVENTS, "fireEvents from LoginHandler cannot be null");
     }
 
     /* per player stuff */
     private final FloodgateConfig config;
-    private final FloodgateHandshakeHandler handshakeHandler;
     private final FloodgateLogger logger;
     private Object networkManager;
     private FloodgatePlayer player;
     private boolean bungeeData;
     private boolean done;
 
+    public SpigotDataHandler(
+            FloodgateConfig config,
+            FloodgateHandshakeHandler handshakeHandler,
+            FloodgateLogger logger) {
+        super(handshakeHandler);
+        this.config = config;
+        this.logger = logger;
+    }
+
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object packet) throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, Object packet) throws Exception {
         ReferenceCountUtil.retain(packet);
-        // we're done but we're not yet removed from the connection
+        // we're done but the removal has been delayed until the queued packets are handled
         if (done) {
             ctx.fireChannelRead(packet);
             return;
         }
 
-        boolean isHandshake = HANDSHAKE_PACKET.isInstance(packet);
-        boolean isLogin = LOGIN_START_PACKET.isInstance(packet);
+        if (HANDSHAKE_PACKET.isInstance(packet)) {
+            networkManager = ctx.channel().pipeline().get("packet_handler");
 
-        try {
-            if (isHandshake) {
-                networkManager = ctx.channel().pipeline().get("packet_handler");
+            String handshakeValue = getCastedValue(packet, GET_HANDSHAKE_HOST);
+            handleHandshake(ctx, packet, handshakeValue);
+            return;
+        }
 
-                String handshakeValue = getCastedValue(packet, HANDSHAKE_HOST);
-                HandshakeResult result = handshakeHandler.handle(ctx.channel(), handshakeValue);
-                HandshakeData handshakeData = result.getHandshakeData();
+        if (!LOGIN_START_PACKET.isInstance(packet)) {
+            ctx.fireChannelRead(packet);
+            if (player == null) {
+                // we're done, not a Floodgate player
+                finish(ctx);
+            }
+            return;
+        }
 
-                setValue(packet, HANDSHAKE_HOST, handshakeData.getHostname());
-                logger.info(handshakeData.getHostname());
+        try {
+            if (!bungeeData) {
+                // we have to fake the offline player (login) cycle
+                Object loginListener = getValue(networkManager, GET_PACKET_LISTENER);
 
-                if (handshakeData.getDisconnectReason() != null) {
-                    ctx.close(); // todo disconnect with message
+                // check if the server is actually in the Login state
+                if (!LOGIN_LISTENER.isInstance(loginListener)) {
+                    // player is not in the login state, abort
                     return;
                 }
 
-                //todo use kickMessageAttribute and let this be common logic
-
-                switch (result.getResultType()) {
-                    case SUCCESS:
-                        break;
-                    case EXCEPTION:
-                        logger.info(config.getDisconnect().getInvalidKey());
-                        ctx.close();
-                        return;
-                    case INVALID_DATA_LENGTH:
-                        int dataLength = result.getBedrockData().getDataLength();
-                        logger.info(
-                                config.getDisconnect().getInvalidArgumentsLength(),
-                                BedrockData.EXPECTED_LENGTH, dataLength
-                        );
-                        ctx.close();
-                        return;
-                    case TIMESTAMP_DENIED:
-                        logger.info(Constants.TIMESTAMP_DENIED_MESSAGE);
-                        ctx.close();
-                        return;
-                    default: // only continue when SUCCESS
-                        return;
-                }
+                // set the player his GameProfile, we can't change the username without this
+                Object gameProfile = GAME_PROFILE_CONSTRUCTOR.newInstance(
+                        player.getCorrectUniqueId(), player.getCorrectUsername()
+                );
+                setValue(loginListener, SET_LOGIN_PROFILE, gameProfile);
 
-                player = result.getFloodgatePlayer();
-                bungeeData = SpigotUtils.isBungeeData();
+                // just like on Spigot:
 
-                if (!bungeeData) {
-                    // Use a spoofedUUID for initUUID (just like Bungeecord)
-                    setValue(networkManager, "spoofedUUID", player.getCorrectUniqueId());
+                // LoginListener#initUUID
+                // new LoginHandler().fireEvents();
+                // LoginListener#protocolState = READY_TO_ACCEPT
 
-                    // Use the player his IP for stuff instead of Geyser his IP
-                    InetSocketAddress address = player.getProperty(PropertyKey.SOCKET_ADDRESS);
-                    setValue(networkManager, SOCKET_ADDRESS, address);
-                }
-            } else if (isLogin) {
-                if (!bungeeData) {
-                    // we have to fake the offline player (login) cycle
-                    Object loginListener = PACKET_LISTENER.get(networkManager);
-
-                    // check if the server is actually in the Login state
-                    if (!LOGIN_LISTENER.isInstance(loginListener)) {
-                        // player is not in the login state, abort
-                        return;
-                    }
-
-                    // set the player his GameProfile, we can't change the username without this
-                    Object gameProfile = GAME_PROFILE_CONSTRUCTOR.newInstance(
-                            player.getCorrectUniqueId(), player.getCorrectUsername()
-                    );
-                    setValue(loginListener, LOGIN_PROFILE, gameProfile);
+                // and the tick of LoginListener will do the rest
+
+                invoke(loginListener, INIT_UUID);
+                invoke(LOGIN_HANDLER_CONSTRUCTOR.newInstance(loginListener), FIRE_LOGIN_EVENTS);
+                setValue(loginListener, SET_PROTOCOL_STATE, READY_TO_ACCEPT_PROTOCOL_STATE);
+            }
+        } finally {
+            // don't let the packet through if the packet is the login packet
+            // because we want to skip the login cycle
+            ReferenceCountUtil.release(packet, 2);
+            // we're done, the rest of the login is handled by the server
+            finish(ctx);
+        }
+    }
+
+    @Override
+    protected void handleResult(ChannelHandlerContext ctx, Object packet, HandshakeResult result) {
+        try {
+            HandshakeData handshakeData = result.getHandshakeData();
+
+            setValue(packet, SET_HANDSHAKE_HOST, handshakeData.getHostname());
 
-                    // just like on Spigot:
+            if (handshakeData.getDisconnectReason() != null) {
+                ctx.close(); // todo disconnect with message
+                return;
+            }
+
+            //todo use kickMessageAttribute and let this be common logic
 
-                    // LoginListener#initUUID
-                    // new LoginHandler().fireEvents();
-                    // LoginListener#protocolState = READY_TO_ACCEPT
+            switch (result.getResultType()) {
+                case SUCCESS:
+                    break;
+                case EXCEPTION:
+                    logger.info(config.getDisconnect().getInvalidKey());
+                    ctx.close();
+                    return;
+                case INVALID_DATA_LENGTH:
+                    int dataLength = result.getBedrockData().getDataLength();
+                    logger.info(
+                            config.getDisconnect().getInvalidArgumentsLength(),
+                            BedrockData.EXPECTED_LENGTH, dataLength
+                    );
+                    ctx.close();
+                    return;
+                case TIMESTAMP_DENIED:
+                    logger.info(Constants.TIMESTAMP_DENIED_MESSAGE);
+                    ctx.close();
+                    return;
+                default: // only continue when SUCCESS
+                    return;
+            }
 
-                    // and the tick of LoginListener will do the rest
+            player = result.getFloodgatePlayer();
+            bungeeData = SpigotUtils.isBungeeData();
 
-                    INIT_UUID.invoke(loginListener);
-                    FIRE_LOGIN_EVENTS.invoke(LOGIN_HANDLER_CONSTRUCTOR.newInstance(loginListener));
-                    setValue(loginListener, PROTOCOL_STATE, READY_TO_ACCEPT_PROTOCOL_STATE);
+            if (!bungeeData) {
+                // Use a spoofedUUID for initUUID (just like Bungeecord)
+                if (SET_SPOOFED_UUID != null) {
+                    setValue(networkManager, SET_SPOOFED_UUID, player.getCorrectUniqueId());
                 }
+
+                // Use the player his IP for stuff instead of Geyser his IP
+                InetSocketAddress address = player.getProperty(PropertyKey.SOCKET_ADDRESS);
+                setValue(networkManager, SET_SOCKET_ADDRESS, address);
             }
         } finally {
-            // don't let the packet through if the packet is the login packet
-            // because we want to skip the login cycle
-            if (isLogin) {
-                ReferenceCountUtil.release(packet, 2);
-            } else {
-                ctx.fireChannelRead(packet);
-            }
+            ctx.fireChannelRead(packet);
 
-            if (isHandshake && bungeeData || isLogin && !bungeeData || player == null) {
-                // we're done, we'll just wait for the loginSuccessCall
-                done = true;
+            if (bungeeData || player == null) {
+                // we're done, we don't have to fake the login cycle
+                finish(ctx);
             }
         }
     }
 
+    private void finish(ChannelHandlerContext ctx) {
+        done = true;
+        removeSelf(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         super.exceptionCaught(ctx, cause);
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Floodgate
+ */
+
+package org.geysermc.floodgate.inject.spigot;
+
+import com.google.common.collect.ForwardingList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A list that forwards everything to the original list of listening channels, but calls the given
+ * consumer for every element that is added. It doesn't add any locking of its own, so the original
+ * list keeps its concurrency behaviour.
+ */
+@RequiredArgsConstructor
+final class InjectingList extends ForwardingList<Object> {
+    @Getter private final List<Object> originalList;
+    private final Consumer<Object> onAdd;
+
+    @Override
+    protected List<Object> delegate() {
+        return originalList;
+    }
+
+    @Override
+    public boolean add(Object element) {
+        onAdd.accept(element);
+        return originalList.add(element);
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        onAdd.accept(element);
+        originalList.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<?> collection) {
+        collection.forEach(onAdd);
+        return originalList.addAll(collection);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<?> elements) {
+        elements.forEach(onAdd);
+        return originalList.addAll(index, elements);
+    }
+}
@@ -27,6 +27,7 @@ package org.geysermc.floodgate.inject.spigot;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
@@ -43,13 +44,17 @@ import org.geysermc.floodgate.util.ReflectionUtils;
 
 @RequiredArgsConstructor
 public final class SpigotInjector extends CommonPlatformInjector {
+    private final ServerChannelHandler serverChannelHandler = new ServerChannelHandler();
+    private final ClientChannelInitializer clientChannelInitializer =
+            new ClientChannelInitializer();
+
     private Object serverConnection;
     private String injectedFieldName;
 
     @Getter private boolean injected;
 
     @Override
-    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    @SuppressWarnings({"SynchronizationOnLocalVariableOrMethodParameter", "unchecked"})
     public boolean inject() throws Exception {
         if (isInjected()) {
             return true;
@@ -69,20 +74,18 @@ public final class SpigotInjector extends CommonPlatformInjector {
                     }
 
                     injectedFieldName = field.getName();
-                    List<?> newList = new CustomList((List<?>) field.get(serverConnection)) {
-                        @Override
-                        public void onAdd(Object object) {
-                            try {
-                                injectClient((ChannelFuture) object);
-                            } catch (Exception exception) {
-                                exception.printStackTrace();
-                            }
+                    List<Object> originalList = (List<Object>) field.get(serverConnection);
+                    List<?> newList = new InjectingList(originalList, object -> {
+                        try {
+                            injectClient((ChannelFuture) object);
+                        } catch (Exception exception) {
+                            exception.printStackTrace();
                         }
-                    };
+                    });
 
                     // inject existing
-                    synchronized (newList) {
-                        for (Object object : newList) {
+                    synchronized (originalList) {
+                        for (Object object : originalList) {
                             try {
                                 injectClient((ChannelFuture) object);
                             } catch (Exception exception) {
@@ -101,25 +104,7 @@ public final class SpigotInjector extends CommonPlatformInjector {
     }
 
     public void injectClient(ChannelFuture future) {
-        future.channel().pipeline().addFirst("floodgate-init", new ChannelInboundHandlerAdapter() {
-            @Override
-            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-                super.channelRead(ctx, msg);
-
-                Channel channel = (Channel) msg;
-                channel.pipeline().addLast(new ChannelInitializer<Channel>() {
-                    @Override
-                    protected void initChannel(Channel channel) {
-                        injectAddonsCall(channel, false);
-                        addInjectedClient(channel);
-                        channel.closeFuture().addListener(listener -> {
-                            channelClosedCall(channel);
-                            removeInjectedClient(channel);
-                        });
-                    }
-                });
-            }
-        });
+        future.channel().pipeline().addFirst("floodgate-init", serverChannelHandler);
     }
 
     @Override
@@ -140,11 +125,9 @@ public final class SpigotInjector extends CommonPlatformInjector {
             Field field = ReflectionUtils.getField(serverConnection.getClass(), injectedFieldName);
             List<?> list = (List<?>) ReflectionUtils.getValue(serverConnection, field);
 
-            if (list instanceof CustomList) {
-                CustomList customList = (CustomList) list;
-                ReflectionUtils.setValue(serverConnection, field, customList.getOriginalList());
-                customList.clear();
-                customList.addAll(list);
+            if (list instanceof InjectingList) {
+                InjectingList injectingList = (InjectingList) list;
+                ReflectionUtils.setValue(serverConnection, field, injectingList.getOriginalList());
             }
         }
 
@@ -170,4 +153,30 @@ public final class SpigotInjector extends CommonPlatformInjector {
 
         return serverConnection;
     }
+
+    /**
+     * Added to the listening channels of the server, adds the {@link ClientChannelInitializer} to
+     * every client that connects.
+     */
+    @Sharable
+    private final class ServerChannelHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            super.channelRead(ctx, msg);
+            ((Channel) msg).pipeline().addLast(clientChannelInitializer);
+        }
+    }
+
+    @Sharable
+    private final class ClientChannelInitializer extends ChannelInitializer<Channel> {
+        @Override
+        protected void initChannel(Channel channel) {
+            injectAddonsCall(channel, false);
+            addInjectedClient(channel);
+            channel.closeFuture().addListener(listener -> {
+                channelClosedCall(channel);
+                removeInjectedClient(channel);
+            });
+        }
+    }
 }
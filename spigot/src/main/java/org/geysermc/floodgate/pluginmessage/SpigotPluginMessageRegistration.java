@@ -25,6 +25,7 @@
 
 package org.geysermc.floodgate.pluginmessage;
 
+import io.netty.buffer.Unpooled;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.plugin.messaging.Messenger;
@@ -41,7 +42,8 @@ public class SpigotPluginMessageRegistration implements PluginMessageRegistratio
                 plugin,
                 channel.getIdentifier(),
                 (channel1, player, message) ->
-                        channel.handleServerCall(message, player.getUniqueId(), player.getName()));
+                        channel.handleServerCall(Unpooled.wrappedBuffer(message),
+                                player.getUniqueId(), player.getName()));
 
         //todo actually do something with the result, lol
 
@@ -27,16 +27,17 @@ package org.geysermc.floodgate.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.geysermc.floodgate.util.ReflectionUtils.getField;
+import static org.geysermc.floodgate.util.ReflectionUtils.getGetter;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 
 @SuppressWarnings("ConstantConditions")
 public final class SpigotUtils {
-    private static final Field IS_BUNGEE_DATA;
+    private static final MethodHandle IS_BUNGEE_DATA;
 
     static {
         Class<?> spigotConfig = ReflectionUtils.getClass("org.spigotmc.SpigotConfig");
-        IS_BUNGEE_DATA = getField(spigotConfig, "bungee");
+        IS_BUNGEE_DATA = getGetter(getField(spigotConfig, "bungee"));
         checkNotNull(IS_BUNGEE_DATA, "bungee field cannot be null. Are you using CraftBukkit?");
     }
 
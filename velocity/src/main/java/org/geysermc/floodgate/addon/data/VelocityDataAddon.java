@@ -64,7 +64,7 @@ public final class VelocityDataAddon implements InjectorAddon {
         if (toServer) {
             channel.pipeline().addAfter(
                     packetEncoder, "floodgate_data_handler",
-                    new VelocityServerDataHandler(config, api)
+                    new VelocityServerDataHandler(config, api, playerAttribute)
             );
             return;
         }
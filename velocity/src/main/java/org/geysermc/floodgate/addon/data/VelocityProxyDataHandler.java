@@ -28,15 +28,16 @@ package org.geysermc.floodgate.addon.data;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.geysermc.floodgate.util.ReflectionUtils.getCastedValue;
 import static org.geysermc.floodgate.util.ReflectionUtils.getField;
+import static org.geysermc.floodgate.util.ReflectionUtils.getGetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.getPrefixedClass;
+import static org.geysermc.floodgate.util.ReflectionUtils.getSetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.setValue;
 
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
-import lombok.RequiredArgsConstructor;
 import org.geysermc.floodgate.api.handshake.HandshakeData;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
@@ -46,55 +47,74 @@ import org.geysermc.floodgate.player.FloodgateHandshakeHandler;
 import org.geysermc.floodgate.player.FloodgateHandshakeHandler.HandshakeResult;
 import org.geysermc.floodgate.util.Constants;
 
-@RequiredArgsConstructor
-public final class VelocityProxyDataHandler extends ChannelInboundHandlerAdapter {
-    private static final Field HANDSHAKE;
+public final class VelocityProxyDataHandler extends CommonDataHandler {
     private static final Class<?> HANDSHAKE_PACKET;
-    private static final Field HANDSHAKE_SERVER_ADDRESS;
-    private static final Field REMOTE_ADDRESS;
+    private static final MethodHandle GET_HANDSHAKE_SERVER_ADDRESS;
+    private static final MethodHandle SET_HANDSHAKE_SERVER_ADDRESS;
+    private static final MethodHandle SET_REMOTE_ADDRESS;
 
     static {
-        Class<?> iic = getPrefixedClass("connection.client.InitialInboundConnection");
-        checkNotNull(iic, "InitialInboundConnection class cannot be null");
-
-        HANDSHAKE = getField(iic, "handshake");
-        checkNotNull(HANDSHAKE, "Handshake field cannot be null");
-
         HANDSHAKE_PACKET = getPrefixedClass("protocol.packet.Handshake");
         checkNotNull(HANDSHAKE_PACKET, "Handshake packet class cannot be null");
 
-        HANDSHAKE_SERVER_ADDRESS = getField(HANDSHAKE_PACKET, "serverAddress");
-        checkNotNull(HANDSHAKE_SERVER_ADDRESS, "Address in the Handshake packet cannot be null");
+        Field serverAddress = getField(HANDSHAKE_PACKET, "serverAddress");
+        checkNotNull(serverAddress, "Address in the Handshake packet cannot be null");
+        GET_HANDSHAKE_SERVER_ADDRESS = getGetter(serverAddress);
+        SET_HANDSHAKE_SERVER_ADDRESS = getSetter(serverAddress);
 
         Class<?> minecraftConnection = getPrefixedClass("connection.MinecraftConnection");
-        REMOTE_ADDRESS = getField(minecraftConnection, "remoteAddress");
+        SET_REMOTE_ADDRESS = getSetter(getField(minecraftConnection, "remoteAddress"));
     }
 
     private final ProxyFloodgateConfig config;
-    private final FloodgateHandshakeHandler handshakeHandler;
     private final AttributeKey<String> kickMessageAttribute;
     private final FloodgateLogger logger;
     private boolean done;
 
+    public VelocityProxyDataHandler(
+            ProxyFloodgateConfig config,
+            FloodgateHandshakeHandler handshakeHandler,
+            AttributeKey<String> kickMessageAttribute,
+            FloodgateLogger logger) {
+        super(handshakeHandler);
+        this.config = config;
+        this.kickMessageAttribute = kickMessageAttribute;
+        this.logger = logger;
+    }
+
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+    protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
         ReferenceCountUtil.retain(msg);
-        // we're only interested in the Handshake packet.
-        // it should be the first packet but you never know
-        if (done || !HANDSHAKE_PACKET.isInstance(msg)) {
+        if (done) {
             ctx.fireChannelRead(msg);
             return;
         }
-
-        handleClientToProxy(ctx, msg);
-        ctx.fireChannelRead(msg);
         done = true;
+
+        // we're only interested in the Handshake packet, which should be the first packet.
+        // if it isn't (e.g. a legacy ping) there is nothing left for us to do
+        if (!HANDSHAKE_PACKET.isInstance(msg)) {
+            ctx.fireChannelRead(msg);
+            removeSelf(ctx);
+            return;
+        }
+
+        String address = getCastedValue(msg, GET_HANDSHAKE_SERVER_ADDRESS);
+        handleHandshake(ctx, msg, address);
+    }
+
+    @Override
+    protected void handleResult(ChannelHandlerContext ctx, Object packet, HandshakeResult result) {
+        handleClientToProxy(ctx, packet, result);
+        ctx.fireChannelRead(packet);
+        removeSelf(ctx);
     }
 
-    private void handleClientToProxy(ChannelHandlerContext ctx, Object packet) {
-        String address = getCastedValue(packet, HANDSHAKE_SERVER_ADDRESS);
+    private void handleClientToProxy(
+            ChannelHandlerContext ctx,
+            Object packet,
+            HandshakeResult result) {
 
-        HandshakeResult result = handshakeHandler.handle(ctx.channel(), address);
         HandshakeData handshakeData = result.getHandshakeData();
 
         if (handshakeData.getDisconnectReason() != null) {
@@ -122,10 +142,10 @@ public final class VelocityProxyDataHandler extends ChannelInboundHandlerAdapter
 
         FloodgatePlayer player = result.getFloodgatePlayer();
 
-        setValue(packet, HANDSHAKE_SERVER_ADDRESS, handshakeData.getHostname());
+        setValue(packet, SET_HANDSHAKE_SERVER_ADDRESS, handshakeData.getHostname());
 
         Object connection = ctx.pipeline().get("handler");
-        setValue(connection, REMOTE_ADDRESS, player.getProperty(PropertyKey.SOCKET_ADDRESS));
+        setValue(connection, SET_REMOTE_ADDRESS, player.getProperty(PropertyKey.SOCKET_ADDRESS));
 
         logger.info("Floodgate player who is logged in as {} {} joined",
                 player.getCorrectUsername(), player.getCorrectUniqueId());
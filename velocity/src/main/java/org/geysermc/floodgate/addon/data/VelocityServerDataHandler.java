@@ -29,105 +29,100 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.geysermc.floodgate.util.ReflectionUtils.castedInvoke;
 import static org.geysermc.floodgate.util.ReflectionUtils.getCastedValue;
 import static org.geysermc.floodgate.util.ReflectionUtils.getField;
+import static org.geysermc.floodgate.util.ReflectionUtils.getFieldOfType;
+import static org.geysermc.floodgate.util.ReflectionUtils.getGetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.getMethod;
+import static org.geysermc.floodgate.util.ReflectionUtils.getMethodHandle;
 import static org.geysermc.floodgate.util.ReflectionUtils.getPrefixedClass;
-import static org.geysermc.floodgate.util.ReflectionUtils.invoke;
+import static org.geysermc.floodgate.util.ReflectionUtils.getSetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.setValue;
 
-import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.geysermc.floodgate.api.ProxyFloodgateApi;
 import org.geysermc.floodgate.api.player.FloodgatePlayer;
 import org.geysermc.floodgate.config.ProxyFloodgateConfig;
-import org.geysermc.floodgate.player.FloodgatePlayerImpl;
-import org.geysermc.floodgate.util.BedrockData;
 
 @SuppressWarnings("ConstantConditions")
 @RequiredArgsConstructor
 public final class VelocityServerDataHandler extends MessageToMessageEncoder<Object> {
     private static final Class<?> HANDSHAKE_PACKET;
-    private static final Field HANDSHAKE_ADDRESS;
-    private static final Method GET_ASSOCIATION;
-    private static final Method GET_PLAYER;
+    private static final MethodHandle GET_HANDSHAKE_ADDRESS;
+    private static final MethodHandle SET_HANDSHAKE_ADDRESS;
+    private static final MethodHandle GET_ASSOCIATION;
+    private static final MethodHandle GET_PLAYER_CONNECTION;
+    private static final MethodHandle GET_CHANNEL;
 
     static {
         HANDSHAKE_PACKET = getPrefixedClass("protocol.packet.Handshake");
         checkNotNull(HANDSHAKE_PACKET, "Handshake packet class cannot be null");
 
-        HANDSHAKE_ADDRESS = getField(HANDSHAKE_PACKET, "serverAddress");
-        checkNotNull(HANDSHAKE_ADDRESS, "Address field of the Handshake packet cannot be null");
+        Field handshakeAddress = getField(HANDSHAKE_PACKET, "serverAddress");
+        checkNotNull(handshakeAddress, "Address field of the Handshake packet cannot be null");
+        GET_HANDSHAKE_ADDRESS = getGetter(handshakeAddress);
+        SET_HANDSHAKE_ADDRESS = getSetter(handshakeAddress);
 
         Class<?> minecraftConnection = getPrefixedClass("connection.MinecraftConnection");
 
-        GET_ASSOCIATION = getMethod(minecraftConnection, "getAssociation");
+        GET_ASSOCIATION = getMethodHandle(getMethod(minecraftConnection, "getAssociation"));
         checkNotNull(GET_ASSOCIATION, "getAssociation in MinecraftConnection cannot be null");
 
-        Class<?> serverConnection = getPrefixedClass("connection.backend.VelocityServerConnection");
+        Class<?> connectedPlayer = getPrefixedClass("connection.client.ConnectedPlayer");
+        GET_PLAYER_CONNECTION = getGetter(getFieldOfType(connectedPlayer, minecraftConnection));
+        checkNotNull(GET_PLAYER_CONNECTION, "Connection of ConnectedPlayer cannot be null");
 
-        GET_PLAYER = getMethod(serverConnection, "getPlayer");
-        checkNotNull(GET_PLAYER, "getPlayer in VelocityServerConnection cannot be null");
+        GET_CHANNEL = getGetter(getFieldOfType(minecraftConnection, Channel.class));
+        checkNotNull(GET_CHANNEL, "Channel of MinecraftConnection cannot be null");
     }
 
     private final ProxyFloodgateConfig config;
     private final ProxyFloodgateApi api;
-    //private final AttributeKey<FloodgatePlayer> playerAttribute;
-    private boolean done;
+    private final AttributeKey<FloodgatePlayer> playerAttribute;
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object packet, List<Object> out) {
         ReferenceCountUtil.retain(packet);
-        if (done) {
-            out.add(packet);
-            return;
-        }
+        out.add(packet);
+        // we're only interested in the first packet, so we don't have to stay in the pipeline
+        ctx.pipeline().remove(this);
 
         if (!HANDSHAKE_PACKET.isInstance(packet) || !config.isSendFloodgateData()) {
-            done = true;
-            out.add(packet);
             return;
         }
 
-        String address = getCastedValue(packet, HANDSHAKE_ADDRESS);
+        String address = getCastedValue(packet, GET_HANDSHAKE_ADDRESS);
 
-        // get the FloodgatePlayer from the ConnectedPlayer
+        // Velocity only associates the Proxy <-> Server connection with a player after the channel
+        // has been initialized, so we can't bind the player to the channel when it's injected.
+        // The association is a ServerConnection, which gives us the player. The FloodgatePlayer
+        // has been bound to the channel of the player when they joined the proxy
         Object minecraftConnection = ctx.pipeline().get("handler");
-        Object association = invoke(minecraftConnection, GET_ASSOCIATION);
-        Player velocityPlayer = castedInvoke(association, GET_PLAYER);
-
-        //noinspection ConstantConditions
-        FloodgatePlayer player = api.getPlayer(velocityPlayer.getUniqueId());
+        ServerConnection association = castedInvoke(minecraftConnection, GET_ASSOCIATION);
 
-        //todo use something similar to what's written below for a more direct approach
-
-        // get the Proxy <-> Player channel from the Proxy <-> Server channel
-        //MinecraftConnection minecraftConnection = ctx.pipeline().get("handler");
-        //((VelocityServerConnection) minecraftConnection.association).proxyPlayer.connection.channel
-
-        //FloodgatePlayer player = playerChannel.attr(playerAttribute).get();
+        Object playerConnection = getCastedValue(association.getPlayer(), GET_PLAYER_CONNECTION);
+        Channel playerChannel = getCastedValue(playerConnection, GET_CHANNEL);
+        FloodgatePlayer player = playerChannel.attr(playerAttribute).get();
 
         // player is not a Floodgate player
         if (player == null) {
-            out.add(packet);
             return;
         }
 
-        BedrockData data = player.as(FloodgatePlayerImpl.class).toBedrockData();
-        String encryptedData = api.createEncryptedDataString(data);
+        String encryptedData = api.getEncryptedDataString(player, ctx.channel().remoteAddress());
 
         // use the same system that we use on bungee, our data goes before all the other data
         int addressFinished = address.indexOf('\0');
         String originalAddress = address.substring(0, addressFinished);
         String remaining = address.substring(addressFinished);
 
-        setValue(packet, HANDSHAKE_ADDRESS, originalAddress + '\0' + encryptedData + remaining);
-
-        done = true;
-        out.add(packet);
+        setValue(packet, SET_HANDSHAKE_ADDRESS, originalAddress + '\0' + encryptedData + remaining);
     }
 }
@@ -27,6 +27,7 @@ package org.geysermc.floodgate.listener;
 
 import static org.geysermc.floodgate.util.ReflectionUtils.getCastedValue;
 import static org.geysermc.floodgate.util.ReflectionUtils.getFieldOfType;
+import static org.geysermc.floodgate.util.ReflectionUtils.getGetter;
 import static org.geysermc.floodgate.util.ReflectionUtils.getPrefixedClass;
 import static org.geysermc.floodgate.util.ReflectionUtils.getValue;
 
@@ -44,7 +45,7 @@ import com.velocitypowered.api.proxy.InboundConnection;
 import com.velocitypowered.api.util.GameProfile;
 import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 import net.kyori.adventure.text.Component;
@@ -55,15 +56,16 @@ import org.geysermc.floodgate.util.LanguageManager;
 import org.geysermc.floodgate.util.VelocityCommandUtil;
 
 public final class VelocityListener {
-    private static final Field INITIAL_MINECRAFT_CONNECTION;
-    private static final Field CHANNEL;
+    private static final MethodHandle GET_INITIAL_MINECRAFT_CONNECTION;
+    private static final MethodHandle GET_CHANNEL;
 
     static {
         Class<?> initialConnection = getPrefixedClass("connection.client.InitialInboundConnection");
 
         Class<?> minecraftConnection = getPrefixedClass("connection.MinecraftConnection");
-        INITIAL_MINECRAFT_CONNECTION = getFieldOfType(initialConnection, minecraftConnection);
-        CHANNEL = getFieldOfType(minecraftConnection, Channel.class);
+        GET_INITIAL_MINECRAFT_CONNECTION =
+                getGetter(getFieldOfType(initialConnection, minecraftConnection));
+        GET_CHANNEL = getGetter(getFieldOfType(minecraftConnection, Channel.class));
     }
 
     private final Cache<InboundConnection, FloodgatePlayer> playerCache =
@@ -89,8 +91,8 @@ public final class VelocityListener {
         FloodgatePlayer player = null;
         String kickMessage;
         try {
-            Object mcConnection = getValue(event.getConnection(), INITIAL_MINECRAFT_CONNECTION);
-            Channel channel = getCastedValue(mcConnection, CHANNEL);
+            Object mcConnection = getValue(event.getConnection(), GET_INITIAL_MINECRAFT_CONNECTION);
+            Channel channel = getCastedValue(mcConnection, GET_CHANNEL);
 
             player = channel.attr(playerAttribute).get();
             kickMessage = channel.attr(kickMessageAttribute).get();
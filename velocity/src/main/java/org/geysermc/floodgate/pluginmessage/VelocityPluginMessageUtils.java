@@ -36,7 +36,10 @@ import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.messages.ChannelMessageSink;
 import com.velocitypowered.api.proxy.messages.ChannelMessageSource;
 import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import io.netty.buffer.Unpooled;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.text.Component;
 import org.geysermc.floodgate.api.logger.FloodgateLogger;
@@ -47,6 +50,10 @@ import org.geysermc.floodgate.pluginmessage.PluginMessageChannel.Result;
 @RequiredArgsConstructor
 public class VelocityPluginMessageUtils extends PluginMessageUtils {
     private final PluginMessageManager pluginMessageManager;
+    // the channel id of our identifiers. Other identifiers aren't cached, since anyone can send
+    // messages with as many different identifiers as they want
+    private final Map<ChannelIdentifier, Integer> channelIds = new ConcurrentHashMap<>();
+    private final Map<String, ChannelIdentifier> identifiers = new ConcurrentHashMap<>();
     private ProxyServer proxy;
     private FloodgateLogger logger;
 
@@ -58,8 +65,7 @@ public class VelocityPluginMessageUtils extends PluginMessageUtils {
 
     @Subscribe
     public void onPluginMessage(PluginMessageEvent event) {
-        String channelId = event.getIdentifier().getId();
-        PluginMessageChannel channel = pluginMessageManager.getChannel(channelId);
+        PluginMessageChannel channel = pluginMessageManager.getChannel(getChannelId(event));
         if (channel == null) {
             return;
         }
@@ -94,8 +100,11 @@ public class VelocityPluginMessageUtils extends PluginMessageUtils {
             sourceIdentity = Identity.SERVER;
         }
 
-        Result result = channel.handleProxyCall(event.getData(), targetUuid, targetUsername,
-                targetIdentity, sourceUuid, sourceUsername, sourceIdentity);
+        PluginMessageContext context = new PluginMessageContext(
+                targetIdentity, targetUuid, targetUsername,
+                sourceIdentity, sourceUuid, sourceUsername);
+
+        Result result = channel.handleProxyCall(Unpooled.wrappedBuffer(event.getData()), context);
 
         event.setResult(result.isAllowed() ? ForwardResult.forward() : ForwardResult.handled());
 
@@ -104,6 +113,20 @@ public class VelocityPluginMessageUtils extends PluginMessageUtils {
         }
     }
 
+    private int getChannelId(PluginMessageEvent event) {
+        // getId creates a new String every time, so the id is only resolved once per identifier
+        Integer channelId = channelIds.get(event.getIdentifier());
+        if (channelId != null) {
+            return channelId;
+        }
+
+        int resolvedId = pluginMessageManager.getChannelId(event.getIdentifier().getId());
+        if (resolvedId != -1) {
+            channelIds.put(event.getIdentifier(), resolvedId);
+        }
+        return resolvedId;
+    }
+
     private void logKick(ChannelMessageSource source, String reason) {
         logger.error(reason + " Closing connection");
         ((Player) source).disconnect(Component.text(reason));
@@ -129,6 +152,8 @@ public class VelocityPluginMessageUtils extends PluginMessageUtils {
 
     @Override
     public boolean sendMessage(UUID player, boolean toServer, String channel, byte[] data) {
-        return sendMessage(player, toServer, MinecraftChannelIdentifier.from(channel), data);
+        ChannelIdentifier identifier =
+                identifiers.computeIfAbsent(channel, MinecraftChannelIdentifier::from);
+        return sendMessage(player, toServer, identifier, data);
     }
 }